@@ -0,0 +1,91 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.bench;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import edu.uwm.ai.search.MapFile;
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.search.BaseSearchAlgorithm;
+import edu.uwm.ai.search.search.CompressedPathDatabase;
+
+/**
+ * Builds the compressed path database of a map offline and saves it, for
+ * {@link ScenarioRunner}'s <code>-cpd</code> option or for loading with
+ * {@link CompressedPathDatabase#load(World, java.io.File)}.
+ * 
+ * Usage: <code>PathDatabaseBuilder [-t threads] map out</code>
+ * 
+ * Diagonal moves cost the square root of two, as in {@link ScenarioRunner}.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class PathDatabaseBuilder
+{
+	public static void main(String[] args) throws Exception
+	{
+		int threads = Runtime.getRuntime().availableProcessors();
+		String map = null;
+		String out = null;
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-t") && i + 1 < args.length) {
+				threads = Integer.parseInt(args[++i]);
+			} else if (map == null) {
+				map = args[i];
+			} else if (out == null) {
+				out = args[i];
+			} else {
+				map = null;
+				break;
+			}
+		}
+
+		if (map == null || out == null || threads < 1) {
+			System.err.println("Usage: PathDatabaseBuilder [-t threads] map out");
+			System.exit(2);
+		}
+
+		BaseSearchAlgorithm.diagCost = Math.sqrt(2);
+
+		World world = MapFile.read(new File(map));
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		try {
+			long st = System.nanoTime();
+			CompressedPathDatabase database = CompressedPathDatabase.build(world, executor, threads);
+			double seconds = (System.nanoTime() - st) / 1e9;
+
+			File file = new File(out);
+			database.save(file);
+
+			System.out.printf(Locale.ROOT, "Built %dx%d database in %.1fs: %d runs, %.1f per cell, %d bytes%n", world.getWidth(), world.getHeight(), seconds, database.getRunCount(), (double) database.getRunCount() / world.getCellCount(), file.length());
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.bench;
+
+import java.util.List;
+import java.util.Locale;
+
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.heuristic.ManhattanDistance;
+import edu.uwm.ai.search.search.BaseSearchAlgorithm;
+import edu.uwm.ai.search.search.CompressedPathDatabase;
+import edu.uwm.ai.search.search.CompressedPathSearch;
+import edu.uwm.ai.search.search.IterativeDeepeningAStar;
+import edu.uwm.ai.search.search.SearchAlgorithm;
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * Runs the search algorithms that are meant to find shortest paths on queries that once made one of them return a longer path
+ * than the others, or no path at all, and checks that every algorithm now finds a path as short as
+ * indexed A* does. Exits with status 1 if any of them does not. Plain A* and jump point search
+ * never improve a cell once it has been generated, so they are left out.
+ * 
+ * Usage: <code>PathRegressions</code>
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class PathRegressions
+{
+	private static final String[] ALGORITHMS = { "ALT", "BA*", "FS", "BJPS", "JPS+", "IDA*", "CPD" };
+
+	/**
+	 * The width, height, density and seed of a world, then the start and goal columns and rows.
+	 */
+	private static final long[][] CASES = {
+			// A jump point reached at the same cost from two directions kept only the first one.
+			{ 20, 35, 15, 5210, 12, 31, 2, 23 },
+			{ 32, 20, 25, 32, 15, 11, 3, 19 },
+	};
+
+	public static void main(String[] args)
+	{
+		int failed = 0;
+
+		for (long[] c : CASES) {
+			World world = new World((int) c[0], (int) c[1], c[2] / 100.0, c[3]);
+			Point start = new Point((int) c[4], (int) c[5]);
+			Point goal = new Point((int) c[6], (int) c[7]);
+
+			double expected = pathLength(SearchBenchmark.createAlgorithm("IA*", world).search(start, goal).getPath());
+
+			for (String name : ALGORITHMS) {
+				SearchAlgorithm search = createAlgorithm(name, world);
+				double length = pathLength(search.search(start, goal).getPath());
+
+				if (Math.abs(length - expected) > 1e-6) {
+					System.out.printf(Locale.ROOT, "%-5s %dx%d seed %d, %s to %s: length %.3f, expected %.3f%n", name, c[0], c[1], c[3], start, goal, length, expected);
+					failed++;
+				}
+			}
+		}
+
+		System.out.printf(Locale.ROOT, "%d of %d checks failed%n", failed, CASES.length * ALGORITHMS.length);
+
+		if (failed > 0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Builds the algorithms that {@link SearchBenchmark} does not know by name.
+	 */
+	private static SearchAlgorithm createAlgorithm(String name, World world)
+	{
+		if (name.equals("IDA*")) {
+			return new IterativeDeepeningAStar(world, new ManhattanDistance());
+		}
+
+		if (name.equals("CPD")) {
+			return new CompressedPathSearch(world, CompressedPathDatabase.build(world));
+		}
+
+		return SearchBenchmark.createAlgorithm(name, world);
+	}
+
+	/**
+	 * Returns the cost of a path, or -1 if it is empty.
+	 */
+	private static double pathLength(List<Point> path)
+	{
+		if (path.isEmpty()) {
+			return -1;
+		}
+
+		double length = 0;
+		for (int i = 1; i < path.size(); i++) {
+			Point a = path.get(i - 1);
+			Point b = path.get(i);
+
+			length += a.getX() != b.getX() && a.getY() != b.getY() ? BaseSearchAlgorithm.diagCost : 1;
+		}
+
+		return length;
+	}
+}
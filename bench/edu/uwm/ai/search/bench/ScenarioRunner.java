@@ -0,0 +1,471 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.uwm.ai.search.MapFile;
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.heuristic.EuclidianDistance;
+import edu.uwm.ai.search.heuristic.LandmarkHeuristic;
+import edu.uwm.ai.search.search.BaseSearchAlgorithm;
+import edu.uwm.ai.search.search.ClusterGraph;
+import edu.uwm.ai.search.search.CompressedPathDatabase;
+import edu.uwm.ai.search.search.CompressedPathSearch;
+import edu.uwm.ai.search.search.HierarchicalSearch;
+import edu.uwm.ai.search.search.IndexedAStarSearch;
+import edu.uwm.ai.search.search.JumpPointPlusSearch;
+import edu.uwm.ai.search.search.JumpTable;
+import edu.uwm.ai.search.search.SearchAlgorithm;
+import edu.uwm.ai.search.search.SearchResult;
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * Runs the queries of a Moving AI scenario file against a map with one or more search algorithms,
+ * and reports, for each algorithm and bucket of the scenario, percentiles of the time per query,
+ * the mean number of nodes expanded and the error of the path lengths against the optimal lengths
+ * listed in the scenario.
+ * 
+ * Usage: <code>ScenarioRunner [-a A*,JPS+,...] [-t threads] [-cpd file] [-csv file] [-json file] map scen</code>
+ * 
+ * Algorithms are named as in {@link SearchBenchmark}, plus <code>CPD</code>, which reads paths from
+ * the compressed path database given with <code>-cpd</code> (see {@link PathDatabaseBuilder}), and those that take a heuristic use the
+ * straight line distance, which unlike the Manhattan distance is admissible here. Queries are shared between the threads, each
+ * of which has its own instance of the algorithm, built before any thread starts; landmark, jump and
+ * cluster tables are built once and shared. The time of a query covers the search only. Some
+ * algorithms build their paths lazily as they are read, so reading the whole path is timed on its
+ * own and reported as the mean refinement time.
+ * 
+ * Diagonal moves cost the square root of two, as in the scenarios. The scenarios do not allow
+ * diagonal moves past any blocked cell, while every algorithm here allows them as long as one of
+ * the two cells beside the move is free, so paths may come out shorter than the listed optimum and
+ * the error may be negative.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class ScenarioRunner
+{
+	private static final double[] PERCENTILES = { 50, 90, 99, 100 };
+
+	/**
+	 * A single query of a scenario.
+	 */
+	static class Query
+	{
+		final int bucket;
+		final Point start;
+		final Point goal;
+		final double optimal;
+
+		Query(int bucket, Point start, Point goal, double optimal)
+		{
+			this.bucket = bucket;
+			this.start = start;
+			this.goal = goal;
+			this.optimal = optimal;
+		}
+	}
+
+	/**
+	 * The summary of one bucket of queries run by one algorithm.
+	 */
+	static class Row
+	{
+		String algorithm;
+		int bucket;
+		int queries;
+		int failed;
+		double[] micros = new double[PERCENTILES.length];
+		double refineMicros;
+		double nodes;
+		double meanError;
+		double maxError;
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		String algorithms = "IA*";
+		int threads = Runtime.getRuntime().availableProcessors();
+		File csv = null;
+		File json = null;
+		File cpd = null;
+		List<String> files = new ArrayList<String>();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-a") && i + 1 < args.length) {
+				algorithms = args[++i];
+			} else if (args[i].equals("-t") && i + 1 < args.length) {
+				threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-cpd") && i + 1 < args.length) {
+				cpd = new File(args[++i]);
+			} else if (args[i].equals("-csv") && i + 1 < args.length) {
+				csv = new File(args[++i]);
+			} else if (args[i].equals("-json") && i + 1 < args.length) {
+				json = new File(args[++i]);
+			} else {
+				files.add(args[i]);
+			}
+		}
+
+		if (files.size() != 2 || threads < 1) {
+			System.err.println("Usage: ScenarioRunner [-a A*,JPS+,...] [-t threads] [-cpd file] [-csv file] [-json file] map scen");
+			System.exit(2);
+		}
+
+		BaseSearchAlgorithm.diagCost = Math.sqrt(2);
+
+		long st = System.nanoTime();
+		World world = MapFile.read(new File(files.get(0)));
+		List<Query> queries = readScenario(new File(files.get(1)), world);
+		CompressedPathDatabase database = cpd == null ? null : CompressedPathDatabase.load(world, cpd);
+		System.out.printf(Locale.ROOT, "Loaded %dx%d map and %d queries in %.1fms%n", world.getWidth(), world.getHeight(), queries.size(), (System.nanoTime() - st) / 1e6);
+
+		List<Row> rows = new ArrayList<Row>();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		try {
+			for (String name : algorithms.split(",")) {
+				rows.addAll(run(name.trim(), world, database, queries, executor, threads));
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		print(rows);
+
+		if (csv != null) {
+			writeCsv(rows, csv);
+		}
+
+		if (json != null) {
+			writeJson(rows, json);
+		}
+	}
+
+	/**
+	 * Reads a scenario file. Each line after the version line holds a bucket, the map name, the map
+	 * size, the start and goal columns and rows, and the optimal length, separated by white space.
+	 */
+	static List<Query> readScenario(File file, World world) throws IOException
+	{
+		List<Query> queries = new ArrayList<Query>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "US-ASCII"));
+
+		try {
+			String line;
+			int number = 0;
+
+			while ((line = reader.readLine()) != null) {
+				number++;
+				line = line.trim();
+
+				if (line.isEmpty() || line.startsWith("version")) {
+					continue;
+				}
+
+				String[] f = line.split("\\s+");
+
+				try {
+					if (f.length < 9) {
+						throw new NumberFormatException();
+					}
+
+					Point start = new Point(Integer.parseInt(f[4]), Integer.parseInt(f[5]));
+					Point goal = new Point(Integer.parseInt(f[6]), Integer.parseInt(f[7]));
+
+					if (!world.isValidPosition(start) || !world.isValidPosition(goal)) {
+						throw new IOException("Query on line " + number + " is blocked or off the map: " + file);
+					}
+
+					queries.add(new Query(Integer.parseInt(f[0]), start, goal, Double.parseDouble(f[8])));
+				} catch (NumberFormatException e) {
+					throw new IOException("Malformed query on line " + number + ": " + file);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+		return queries;
+	}
+
+	/**
+	 * Runs every query with one algorithm and summarizes the outcome per bucket.
+	 */
+	static List<Row> run(final String name, final World world, final CompressedPathDatabase database, final List<Query> queries, ExecutorService executor, int threads) throws InterruptedException
+	{
+		if (name.equals("CPD") && database == null) {
+			throw new IllegalArgumentException("CPD needs a path database, given with -cpd.");
+		}
+
+		final long[] nanos = new long[queries.size()];
+		final long[] refineNanos = new long[queries.size()];
+		final int[] nodes = new int[queries.size()];
+		final double[] lengths = new double[queries.size()];
+		final AtomicInteger next = new AtomicInteger();
+
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(threads);
+		for (final SearchAlgorithm search : createEngines(name, world, database, threads)) {
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call()
+				{
+					for (int i = next.getAndIncrement(); i < queries.size(); i = next.getAndIncrement()) {
+						Query q = queries.get(i);
+
+						long st = System.nanoTime();
+						SearchResult result = search.search(q.start, q.goal);
+						long mid = System.nanoTime();
+
+						// Lazy paths are refined as they are read, which is timed on its own.
+						double length = pathLength(result.getPath());
+						long end = System.nanoTime();
+
+						nanos[i] = mid - st;
+						refineNanos[i] = end - mid;
+						nodes[i] = result.getNumberNodesExpanded();
+						lengths[i] = length;
+					}
+
+					return null;
+				}
+			});
+		}
+
+		try {
+			for (Future<Void> f : executor.invokeAll(tasks)) {
+				f.get();
+			}
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+
+		List<Row> rows = new ArrayList<Row>();
+		int from = 0;
+
+		// Queries are listed bucket by bucket, but sort out any that are not.
+		Integer[] order = new Integer[queries.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b)
+			{
+				int ba = queries.get(a).bucket;
+				int bb = queries.get(b).bucket;
+				return ba < bb ? -1 : (ba > bb ? 1 : a.compareTo(b));
+			}
+		});
+
+		while (from < order.length) {
+			int bucket = queries.get(order[from]).bucket;
+			int to = from;
+
+			while (to < order.length && queries.get(order[to]).bucket == bucket) {
+				to++;
+			}
+
+			Row row = new Row();
+			row.algorithm = name;
+			row.bucket = bucket;
+			row.queries = to - from;
+			row.maxError = Double.NEGATIVE_INFINITY;
+
+			long[] times = new long[to - from];
+			int solved = 0;
+
+			for (int k = from; k < to; k++) {
+				int i = order[k];
+				Query q = queries.get(i);
+
+				times[k - from] = nanos[i];
+				row.refineMicros += refineNanos[i] / 1e3;
+				row.nodes += nodes[i];
+
+				if (lengths[i] < 0) {
+					row.failed++;
+					continue;
+				}
+
+				double error = q.optimal == 0 ? 0 : (lengths[i] - q.optimal) / q.optimal;
+
+				// The optimal lengths are only given to eight decimal places.
+				if (Math.abs(error) < 1e-7) {
+					error = 0;
+				}
+
+				row.meanError += error;
+				row.maxError = Math.max(row.maxError, error);
+				solved++;
+			}
+
+			Arrays.sort(times);
+			for (int p = 0; p < PERCENTILES.length; p++) {
+				int rank = (int) Math.ceil(PERCENTILES[p] / 100 * times.length);
+				row.micros[p] = times[Math.max(0, rank - 1)] / 1e3;
+			}
+
+			row.nodes /= row.queries;
+			row.refineMicros /= row.queries;
+			row.meanError = solved == 0 ? 0 : row.meanError / solved;
+			row.maxError = solved == 0 ? 0 : row.maxError;
+
+			rows.add(row);
+			from = to;
+		}
+
+		return rows;
+	}
+
+	/**
+	 * Builds one engine per worker thread. The engines are built here, before any worker
+	 * starts, since some register themselves with the world as they are built; the tables
+	 * that are costly to build and safe to read from several threads are built only once.
+	 */
+	static List<SearchAlgorithm> createEngines(String name, World world, CompressedPathDatabase database, int threads)
+	{
+		List<SearchAlgorithm> engines = new ArrayList<SearchAlgorithm>(threads);
+
+		LandmarkHeuristic landmarks = name.equals("ALT") ? new LandmarkHeuristic(world) : null;
+		JumpTable table = name.equals("JPS+") ? new JumpTable(world) : null;
+		ClusterGraph graph = name.equals("HPA") ? new ClusterGraph(world, HierarchicalSearch.DEFAULT_CLUSTER_SIZE) : null;
+
+		for (int t = 0; t < threads; t++) {
+			if (name.equals("CPD")) {
+				engines.add(new CompressedPathSearch(world, database));
+			} else if (landmarks != null) {
+				engines.add(new IndexedAStarSearch(world, landmarks));
+			} else if (table != null) {
+				engines.add(new JumpPointPlusSearch(table, new EuclidianDistance()));
+			} else if (graph != null) {
+				engines.add(new HierarchicalSearch(graph, new EuclidianDistance()));
+			} else {
+				engines.add(SearchBenchmark.createAlgorithm(name, world, new EuclidianDistance()));
+			}
+		}
+
+		return engines;
+	}
+
+	/**
+	 * Returns the cost of a path, or -1 if it is empty. Paths that allow random access are
+	 * read by index; any other path is read with <code>remove(0)</code>, the only way some
+	 * algorithms' lazy paths can be read.
+	 */
+	static double pathLength(List<Point> path)
+	{
+		if (path.isEmpty()) {
+			return -1;
+		}
+
+		double length = 0;
+
+		if (path instanceof RandomAccess) {
+			for (int i = 1; i < path.size(); i++) {
+				length += stepCost(path.get(i - 1), path.get(i));
+			}
+
+			return length;
+		}
+
+		Point last = path.remove(0);
+
+		while (!path.isEmpty()) {
+			Point p = path.remove(0);
+			length += stepCost(last, p);
+			last = p;
+		}
+
+		return length;
+	}
+
+	private static double stepCost(Point a, Point b)
+	{
+		return a.getX() != b.getX() && a.getY() != b.getY() ? BaseSearchAlgorithm.diagCost : 1;
+	}
+
+	private static void print(List<Row> rows)
+	{
+		System.out.printf(Locale.ROOT, "%-6s %6s %7s %6s %10s %10s %10s %10s %10s %10s %9s %9s%n", "algo", "bucket", "queries", "failed", "p50 us", "p90 us", "p99 us", "max us", "refine us", "nodes", "mean err", "max err");
+
+		for (Row r : rows) {
+			System.out.printf(Locale.ROOT, "%-6s %6d %7d %6d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f %8.3f%% %8.3f%%%n", r.algorithm, r.bucket, r.queries, r.failed, r.micros[0], r.micros[1], r.micros[2], r.micros[3], r.refineMicros, r.nodes, r.meanError * 100, r.maxError * 100);
+		}
+	}
+
+	private static void writeCsv(List<Row> rows, File file) throws IOException
+	{
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+
+		try {
+			out.println("algorithm,bucket,queries,failed,p50_us,p90_us,p99_us,max_us,mean_refine_us,mean_nodes,mean_error,max_error");
+
+			for (Row r : rows) {
+				out.printf(Locale.ROOT, "%s,%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.6f,%.6f%n", r.algorithm, r.bucket, r.queries, r.failed, r.micros[0], r.micros[1], r.micros[2], r.micros[3], r.refineMicros, r.nodes, r.meanError, r.maxError);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void writeJson(List<Row> rows, File file) throws IOException
+	{
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+
+		try {
+			out.println("[");
+
+			for (int i = 0; i < rows.size(); i++) {
+				Row r = rows.get(i);
+
+				out.printf(Locale.ROOT, "  {\"algorithm\": \"%s\", \"bucket\": %d, \"queries\": %d, \"failed\": %d, \"p50_us\": %.3f, \"p90_us\": %.3f, \"p99_us\": %.3f, \"max_us\": %.3f, \"mean_refine_us\": %.3f, \"mean_nodes\": %.3f, \"mean_error\": %.6f, \"max_error\": %.6f}%s%n", r.algorithm.replace("\\", "\\\\").replace("\"", "\\\""), r.bucket, r.queries, r.failed, r.micros[0], r.micros[1], r.micros[2], r.micros[3], r.refineMicros, r.nodes, r.meanError, r.maxError, i + 1 < rows.size() ? "," : "");
+			}
+
+			out.println("]");
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.bench;
+
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.heuristic.Heuristic;
+import edu.uwm.ai.search.heuristic.LandmarkHeuristic;
+import edu.uwm.ai.search.heuristic.ManhattanDistance;
+import edu.uwm.ai.search.search.AStarSearch;
+import edu.uwm.ai.search.search.BidirectionalAStarSearch;
+import edu.uwm.ai.search.search.BidirectionalBreadthFirstSearch;
+import edu.uwm.ai.search.search.BitJumpPointSearch;
+import edu.uwm.ai.search.search.BreadthFirstSearch;
+import edu.uwm.ai.search.search.FloodFillSearch;
+import edu.uwm.ai.search.search.FringeSearch;
+import edu.uwm.ai.search.search.HierarchicalSearch;
+import edu.uwm.ai.search.search.IndexedAStarSearch;
+import edu.uwm.ai.search.search.IterativeDeepening;
+import edu.uwm.ai.search.search.JumpPointPlusSearch;
+import edu.uwm.ai.search.search.JumpPointSearch;
+import edu.uwm.ai.search.search.SearchAlgorithm;
+import edu.uwm.ai.search.search.SearchResult;
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * Measures a single search of every search algorithm over seeded worlds. Each invocation searches
+ * the next pair from a fixed ring of start and goal points, so every algorithm sees exactly the same
+ * queries for a given size, density and seed. Since every pair has a new goal, each flood fill
+ * search includes rebuilding the world's flow field. Every path is read in full, which for the
+ * hierarchical search includes refining it.
+ * 
+ * Run {@link #main(String[])} to get throughput, average time and the allocation rate per search
+ * (reported by the GC profiler as <code>gc.alloc.rate.norm</code>).
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark
+{
+	private static final int PAIRS = 64;
+
+	@Param({ "48x32", "96x64", "512x512", "2048x2048" })
+	public String size;
+
+	@Param({ "0.1", "0.3" })
+	public double density;
+
+	@Param({ "42" })
+	public long seed;
+
+	@Param({ "A*", "IA*", "ALT", "BA*", "FS", "JPS", "BJPS", "JPS+", "HPA", "BFS", "BBFS", "ID", "FF" })
+	public String algorithm;
+
+	private World world;
+	private SearchAlgorithm search;
+	private Point[] starts;
+	private Point[] goals;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		int x = size.indexOf('x');
+		world = new World(Integer.parseInt(size.substring(0, x)), Integer.parseInt(size.substring(x + 1)), density, seed);
+		search = createAlgorithm(algorithm, world);
+
+		starts = new Point[PAIRS];
+		goals = new Point[PAIRS];
+
+		for (int i = 0; i < PAIRS; i++) {
+			starts[i] = world.getRandomFreePoint();
+			goals[i] = world.getRandomFreePoint();
+		}
+
+		next = 0;
+	}
+
+	@Benchmark
+	public void search(Blackhole bh)
+	{
+		Point start = starts[next];
+		Point goal = goals[next];
+		next = (next + 1) % PAIRS;
+
+		SearchResult result = search.search(start, goal);
+		List<Point> path = result.getPath();
+		bh.consume(result.getNumberNodesExpanded());
+
+		// Hierarchical paths are only refined into cells as they are read from the front, so the
+		// whole path is read here to include that work.
+		if (path instanceof RandomAccess) {
+			for (int i = 0; i < path.size(); i++) {
+				bh.consume(path.get(i));
+			}
+		} else {
+			while (!path.isEmpty()) {
+				bh.consume(path.remove(0));
+			}
+		}
+	}
+
+	static SearchAlgorithm createAlgorithm(String name, World world)
+	{
+		return createAlgorithm(name, world, new ManhattanDistance());
+	}
+
+	static SearchAlgorithm createAlgorithm(String name, World world, Heuristic heuristic)
+	{
+		if (name.equals("A*")) {
+			return new AStarSearch(world, heuristic);
+		}
+
+		if (name.equals("IA*")) {
+			return new IndexedAStarSearch(world, heuristic);
+		}
+
+		// Indexed A* with landmark tables, which are built here, outside of the measurement.
+		if (name.equals("ALT")) {
+			return new IndexedAStarSearch(world, new LandmarkHeuristic(world));
+		}
+
+		if (name.equals("FS")) {
+			return new FringeSearch(world, heuristic);
+		}
+
+		if (name.equals("JPS")) {
+			return new JumpPointSearch(world, heuristic);
+		}
+
+		if (name.equals("BJPS")) {
+			return new BitJumpPointSearch(world, heuristic);
+		}
+
+		if (name.equals("JPS+")) {
+			return new JumpPointPlusSearch(world, heuristic);
+		}
+
+		if (name.equals("BA*")) {
+			return new BidirectionalAStarSearch(world, heuristic);
+		}
+
+		if (name.equals("HPA")) {
+			return new HierarchicalSearch(world, heuristic);
+		}
+
+		if (name.equals("BFS")) {
+			return new BreadthFirstSearch(world);
+		}
+
+		if (name.equals("BBFS")) {
+			return new BidirectionalBreadthFirstSearch(world);
+		}
+
+		if (name.equals("ID")) {
+			return new IterativeDeepening(world);
+		}
+
+		if (name.equals("FF")) {
+			return new FloodFillSearch(world, heuristic);
+		}
+
+		throw new IllegalArgumentException("Unknown algorithm " + name + ".");
+	}
+
+	public static void main(String[] args) throws RunnerException
+	{
+		Options options = new OptionsBuilder().include(SearchBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class).build();
+
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search;
+
+/**
+ * A growable list of changed cells, along with the smallest rectangle holding all of them. Used by
+ * a {@link World} to collect the changes of a batch, and by anything that would rather apply
+ * changes lazily than as they are reported.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class DirtyRegion
+{
+	private int[] xs;
+	private int[] ys;
+	private int size;
+
+	private int minX, minY, maxX, maxY;
+
+	public DirtyRegion()
+	{
+		this(16);
+	}
+
+	public DirtyRegion(int capacity)
+	{
+		this.xs = new int[Math.max(1, capacity)];
+		this.ys = new int[Math.max(1, capacity)];
+
+		clear();
+	}
+
+	/**
+	 * Creates a copy of another region.
+	 */
+	public DirtyRegion(DirtyRegion region)
+	{
+		this(region.size);
+
+		addAll(region);
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Returns the column of the kth changed cell, in the order the changes were added.
+	 */
+	public int getX(int k)
+	{
+		return xs[k];
+	}
+
+	/**
+	 * Returns the row of the kth changed cell, in the order the changes were added.
+	 */
+	public int getY(int k)
+	{
+		return ys[k];
+	}
+
+	public int getMinX()
+	{
+		return minX;
+	}
+
+	public int getMinY()
+	{
+		return minY;
+	}
+
+	public int getMaxX()
+	{
+		return maxX;
+	}
+
+	public int getMaxY()
+	{
+		return maxY;
+	}
+
+	public void add(int i, int j)
+	{
+		if (size == xs.length) {
+			int[] grownX = new int[size * 2];
+			int[] grownY = new int[size * 2];
+			System.arraycopy(xs, 0, grownX, 0, size);
+			System.arraycopy(ys, 0, grownY, 0, size);
+			xs = grownX;
+			ys = grownY;
+		}
+
+		xs[size] = i;
+		ys[size] = j;
+		size++;
+
+		minX = Math.min(minX, i);
+		minY = Math.min(minY, j);
+		maxX = Math.max(maxX, i);
+		maxY = Math.max(maxY, j);
+	}
+
+	public void addAll(DirtyRegion region)
+	{
+		for (int k = 0; k < region.size; k++) {
+			add(region.xs[k], region.ys[k]);
+		}
+	}
+
+	public void clear()
+	{
+		size = 0;
+		minX = Integer.MAX_VALUE;
+		minY = Integer.MAX_VALUE;
+		maxX = Integer.MIN_VALUE;
+		maxY = Integer.MIN_VALUE;
+	}
+}
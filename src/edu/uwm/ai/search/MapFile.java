@@ -0,0 +1,273 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import edu.uwm.ai.search.util.BitGrid;
+
+/**
+ * Reads and writes worlds as files. Two formats are understood:
+ * 
+ * <ul>
+ * <li>The text format of the Moving AI Lab benchmark maps: a header of <code>type</code>,
+ * <code>height</code> and <code>width</code> lines, a line reading <code>map</code> and then one
+ * line of characters per row. The characters <code>.</code>, <code>G</code> and <code>S</code> are
+ * free; any other character (trees, water, out of bounds) is blocked.</li>
+ * <li>A compact binary format: the magic number {@link #MAGIC}, a format version, the width and the
+ * height as big-endian ints, then each row as a run of 64-bit words in which bit k of word j is set
+ * if the cell in column 64j + k is blocked.</li>
+ * </ul>
+ * 
+ * Files are read through a memory mapping and parsed straight into the obstacle grid, without
+ * building a string per line, so maps with millions of cells load in milliseconds. The worlds read
+ * have no display, and work with every search algorithm.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class MapFile
+{
+	/**
+	 * The first four bytes of a binary map, "GRID" in ASCII.
+	 */
+	public static final int MAGIC = 0x47524944;
+
+	private static final int VERSION = 1;
+
+	private MapFile()
+	{
+	}
+
+	/**
+	 * Reads a world from a file in either format, telling them apart by the magic number.
+	 */
+	public static World read(File file) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+		try {
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if (buffer.remaining() >= 4 && buffer.getInt(0) == MAGIC) {
+				return readBinary(buffer, file);
+			}
+
+			return readText(buffer, file);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Writes a world to a file in the binary format, replacing anything already there.
+	 */
+	public static void writeBinary(World world, File file) throws IOException
+	{
+		int w = world.getWidth();
+		int h = world.getHeight();
+		int words = (w + 63) >>> 6;
+
+		ByteBuffer buffer = ByteBuffer.allocate(16 + h * words * 8);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(w);
+		buffer.putInt(h);
+
+		BitGrid grid = world.getGrid();
+		for (int y = 0; y < h; y++) {
+			for (int j = 0; j < words; j++) {
+				long word = grid.getRowWord(j << 6, y);
+
+				// Cells past the end of the row read as blocked, but are not part of the map.
+				int used = w - (j << 6);
+				if (used < 64) {
+					word &= (1L << used) - 1;
+				}
+
+				buffer.putLong(word);
+			}
+		}
+
+		buffer.flip();
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+		try {
+			FileChannel channel = raf.getChannel();
+			channel.truncate(0);
+
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static World readBinary(ByteBuffer buffer, File file) throws IOException
+	{
+		if (buffer.remaining() < 16 || buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported binary map: " + file);
+		}
+
+		int w = buffer.getInt(8);
+		int h = buffer.getInt(12);
+		int words = (w + 63) >>> 6;
+
+		if (w <= 0 || h <= 0 || buffer.remaining() < 16 + (long) h * words * 8) {
+			throw new IOException("Truncated binary map: " + file);
+		}
+
+		World world = new World(w, h);
+		BitGrid grid = world.getGrid();
+
+		buffer.position(16);
+		for (int y = 0; y < h; y++) {
+			for (int j = 0; j < words; j++) {
+				long word = buffer.getLong();
+
+				while (word != 0) {
+					int x = (j << 6) + Long.numberOfTrailingZeros(word);
+
+					if (x < w) {
+						grid.setBlocked(x, y, true);
+					}
+
+					word &= word - 1;
+				}
+			}
+		}
+
+		return world;
+	}
+
+	private static World readText(ByteBuffer buffer, File file) throws IOException
+	{
+		int w = -1;
+		int h = -1;
+
+		for (;;) {
+			String key = nextToken(buffer);
+
+			if (key == null) {
+				throw new IOException("Missing map section: " + file);
+			}
+
+			if (key.equals("map")) {
+				break;
+			}
+
+			String value = nextToken(buffer);
+
+			if (key.equals("width")) {
+				w = parseSize(value, file);
+			} else if (key.equals("height")) {
+				h = parseSize(value, file);
+			}
+		}
+
+		if (w < 0 || h < 0) {
+			throw new IOException("Missing width or height: " + file);
+		}
+
+		World world = new World(w, h);
+		BitGrid grid = world.getGrid();
+
+		for (int y = 0; y < h; y++) {
+			skipLineBreaks(buffer);
+
+			if (buffer.remaining() < w) {
+				throw new IOException("Map ends at row " + y + ": " + file);
+			}
+
+			for (int x = 0; x < w; x++) {
+				byte c = buffer.get();
+
+				if (c != '.' && c != 'G' && c != 'S') {
+					if (c == '\n' || c == '\r') {
+						throw new IOException("Row " + y + " is too short: " + file);
+					}
+
+					grid.setBlocked(x, y, true);
+				}
+			}
+		}
+
+		return world;
+	}
+
+	/**
+	 * Returns the next run of characters that are not white space, or null at the end of the file.
+	 */
+	private static String nextToken(ByteBuffer buffer)
+	{
+		while (buffer.hasRemaining() && isSpace(buffer.get(buffer.position()))) {
+			buffer.get();
+		}
+
+		if (!buffer.hasRemaining()) {
+			return null;
+		}
+
+		StringBuilder token = new StringBuilder();
+		while (buffer.hasRemaining() && !isSpace(buffer.get(buffer.position()))) {
+			token.append((char) buffer.get());
+		}
+
+		return token.toString();
+	}
+
+	private static void skipLineBreaks(ByteBuffer buffer)
+	{
+		while (buffer.hasRemaining() && (buffer.get(buffer.position()) == '\n' || buffer.get(buffer.position()) == '\r')) {
+			buffer.get();
+		}
+	}
+
+	private static boolean isSpace(byte c)
+	{
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+	}
+
+	private static int parseSize(String value, File file) throws IOException
+	{
+		try {
+			int size = Integer.parseInt(value);
+
+			if (size > 0) {
+				return size;
+			}
+		} catch (NumberFormatException e) {
+			// Reported below.
+		}
+
+		throw new IOException("Bad size '" + value + "': " + file);
+	}
+}
@@ -22,18 +22,31 @@
 
 package edu.uwm.ai.search;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import processing.core.PApplet;
+import edu.uwm.ai.search.agent.ParallelPlanner;
 import edu.uwm.ai.search.agent.PlayerEntity;
 import edu.uwm.ai.search.agent.SearchEntity;
+import edu.uwm.ai.search.agent.SearchScheduler;
 import edu.uwm.ai.search.heuristic.ManhattanDistance;
 import edu.uwm.ai.search.search.AStarSearch;
 import edu.uwm.ai.search.search.BreadthFirstSearch;
+import edu.uwm.ai.search.search.DStarLiteSearch;
 import edu.uwm.ai.search.search.FloodFillSearch;
 import edu.uwm.ai.search.search.IterativeDeepening;
 import edu.uwm.ai.search.search.JumpPointSearch;
+import edu.uwm.ai.search.search.ResumableAStarSearch;
+import edu.uwm.ai.search.search.SearchAlgorithm;
+import edu.uwm.ai.search.search.SearchResult;
+import edu.uwm.ai.search.util.LatencyHistogram;
+import edu.uwm.ai.search.util.LatencyRegistry;
+import edu.uwm.ai.search.util.Point;
 
 /**
  * @author Eric Fritz
@@ -50,8 +63,14 @@ public class Search extends PApplet
 	private PlayerEntity player;
 	private boolean chasing = true;
 	private boolean entitiesDirty = false;
+	private boolean parallel = false;
+	private boolean batched = false;
+	private boolean sliced = false;
+	private ParallelPlanner planner = new ParallelPlanner();
+	private SearchScheduler scheduler = new SearchScheduler(5000, 8000);
 	private int mIndex, pMapUpdateCost, tMapUpdateCost;
 	private double pMapUpdateTime, tMapUpdateTime;
+	private LatencyHistogram mapUpdateLatencies;
 
 	private List<SearchEntity> entities = new ArrayList<SearchEntity>();
 	private List<SearchEntity> nextEntities;
@@ -97,6 +116,7 @@ public class Search extends PApplet
 		mIndex = index;
 
 		pMapUpdateTime = tMapUpdateTime = 0;
+		mapUpdateLatencies = new LatencyHistogram();
 
 		chasing = false;
 		nextEntities = new ArrayList<SearchEntity>();
@@ -109,10 +129,13 @@ public class Search extends PApplet
 				nextEntities.add(new SearchEntity(this, world, world.getRandomFreePoint(), color(0, 127, 255), player, new BreadthFirstSearch(world)));
 				break;
 
-			// Displays second demonstration, A* vs A* with JPS in a large, open grid.
+			// Displays second demonstration, A* vs A* with JPS vs D* Lite vs resumable A* in a
+			// large, open grid.
 			case 2:
 				nextEntities.add(new SearchEntity(this, world, world.getRandomFreePoint(), color(255, 127, 0), player, new JumpPointSearch(world, new ManhattanDistance())));
 				nextEntities.add(new SearchEntity(this, world, world.getRandomFreePoint(), color(127, 0, 255), player, new AStarSearch(world, new ManhattanDistance())));
+				nextEntities.add(new SearchEntity(this, world, world.getRandomFreePoint(), color(0, 127, 255), player, new DStarLiteSearch(world, new ManhattanDistance())));
+				nextEntities.add(new SearchEntity(this, world, world.getRandomFreePoint(), color(0, 191, 95), player, new ResumableAStarSearch(world, new ManhattanDistance())));
 				break;
 
 			// Displays third demonstration, showing path finding time for large groups of entities
@@ -143,6 +166,27 @@ public class Search extends PApplet
 			chasing = !chasing;
 		}
 
+		// P toggles between updating entities one after another and planning them all at once.
+		if (keyCode == 80) {
+			parallel = !parallel;
+		}
+
+		// B toggles sharing one search between all entities using the same algorithm.
+		if (keyCode == 66) {
+			batched = !batched;
+		}
+
+		// T toggles stepping resumable searches a little every frame instead of all at once.
+		if (keyCode == 84) {
+			sliced = !sliced;
+		}
+
+		// L logs the search latencies of each algorithm since the last press to latency.csv, and
+		// writes the latencies of the whole run to latency.json.
+		if (keyCode == 76) {
+			dumpLatencies();
+		}
+
 		player.update(keyCode);
 	}
 
@@ -171,6 +215,7 @@ public class Search extends PApplet
 		int totalPCost = 0;
 		int totalTCost = 0;
 		double totalTTime = 0.0;
+		LatencyHistogram.Snapshot latencies = null;
 		String displayString = "";
 		switch (mIndex) {
 			case 1:
@@ -190,9 +235,11 @@ public class Search extends PApplet
 
 					totalPCost += e.getPCost();
 					totalTCost += e.getTCost();
+
+					latencies = latencies == null ? e.getLatencies().snapshot() : latencies.add(e.getLatencies().snapshot());
 				}
 
-				displayString = String.format("[%3s] %8.2fms total, %8.2fms avg, %6d nodes expanded last (%6d average), %6d total", entities.get(0).getAlgorithm().toString(), totalTTime, totalSearches == 0 ? 0 : (totalTTime / totalSearches), totalPCost, totalSearches == 0 ? 0 : (totalTCost / totalSearches), totalTCost);
+				displayString = String.format("[%3s] %8.2fms total, p50 %6.2fms, p99 %6.2fms, max %6.2fms, %6d nodes expanded last (%6d average)", entities.get(0).getAlgorithm().toString(), totalTTime, latencies.getValueAtPercentile(50) / 1e6, latencies.getValueAtPercentile(99) / 1e6, latencies.getMax() / 1e6, totalPCost, totalSearches == 0 ? 0 : (totalTCost / totalSearches));
 				text(" " + displayString, 20, displayHeight - offset);
 				break;
 
@@ -204,7 +251,10 @@ public class Search extends PApplet
 
 				totalTTime += tMapUpdateTime;
 
-				displayString = String.format("[%3s] %8.2fms total, %8.2fms avg, %6d nodes expanded last (%6d average), %6d total", entities.get(0).getAlgorithm().toString(), totalTTime, totalSearches == 0 ? 0 : (totalTTime / totalSearches), pMapUpdateCost, totalSearches == 0 ? 0 : (tMapUpdateCost / totalSearches), tMapUpdateCost);
+				// Following the field is nearly free, so the tail is in the map updates.
+				latencies = mapUpdateLatencies.snapshot();
+
+				displayString = String.format("[%3s] %8.2fms total, p50 %6.2fms, p99 %6.2fms, max %6.2fms, %6d nodes expanded last (%6d average)", entities.get(0).getAlgorithm().toString(), totalTTime, latencies.getValueAtPercentile(50) / 1e6, latencies.getValueAtPercentile(99) / 1e6, latencies.getMax() / 1e6, pMapUpdateCost, totalSearches == 0 ? 0 : (tMapUpdateCost / totalSearches));
 				text(" " + displayString, 20, displayHeight - offset);
 				break;
 		}
@@ -222,6 +272,10 @@ public class Search extends PApplet
 
 		long now = System.currentTimeMillis();
 
+		if (sliced && chasing) {
+			scheduler.step(entities, player.getPoint());
+		}
+
 		if (now - 250 > last && chasing) {
 			last = now;
 			switch (mIndex) {
@@ -230,9 +284,7 @@ public class Search extends PApplet
 				case 1:
 				case 2:
 				case 3:
-					for (SearchEntity e : entities) {
-						e.update();
-					}
+					updateEntities();
 					break;
 				case 4:
 					// The lookup table must be updated separately, but should only be done once.
@@ -242,14 +294,89 @@ public class Search extends PApplet
 						long st = System.nanoTime();
 						pMapUpdateCost = world.updateWorldMap(player);
 						tMapUpdateCost += pMapUpdateCost;
-						pMapUpdateTime = (System.nanoTime() - st) / 1e6;
+						long nanos = System.nanoTime() - st;
+						pMapUpdateTime = nanos / 1e6;
 						tMapUpdateTime += pMapUpdateTime;
+
+						mapUpdateLatencies.record(nanos);
+						LatencyRegistry.getDefault().get("FF map update").record(nanos);
 					}
 					// Flood-Fill entities will update their paths if they need to.
-					for (SearchEntity e : entities) {
-						e.update();
-					}
+					updateEntities();
 			}
 		}
 	}
+
+	private void dumpLatencies()
+	{
+		LatencyRegistry latencies = LatencyRegistry.getDefault();
+
+		try {
+			LatencyRegistry.writeCsv(latencies.intervalSnapshot(), new File("latency.csv"), true);
+			LatencyRegistry.writeJson(latencies.snapshot(), new File("latency.json"));
+		} catch (IOException e) {
+			System.err.println("Could not write latencies: " + e.getMessage());
+		}
+	}
+
+	private void updateEntities()
+	{
+		if (sliced) {
+			scheduler.commit(entities);
+		} else if (batched) {
+			updateEntitiesBatched();
+		} else if (parallel) {
+			planner.update(entities, player.getPoint());
+		} else {
+			for (SearchEntity e : entities) {
+				e.update();
+			}
+		}
+	}
+
+	/**
+	 * Plans paths for every entity that needs one with a single call to
+	 * {@link SearchAlgorithm#searchMany(List, Point)} per algorithm, then moves every entity. The
+	 * time of each shared search is split evenly between the entities it served.
+	 */
+	private void updateEntitiesBatched()
+	{
+		Point goal = new Point(player.getPoint());
+		Map<String, List<SearchEntity>> groups = new LinkedHashMap<String, List<SearchEntity>>();
+
+		for (SearchEntity e : entities) {
+			if (!e.needsPath(goal)) {
+				e.plan(goal);
+				continue;
+			}
+
+			List<SearchEntity> group = groups.get(e.getAlgorithm().toString());
+
+			if (group == null) {
+				group = new ArrayList<SearchEntity>();
+				groups.put(e.getAlgorithm().toString(), group);
+			}
+
+			group.add(e);
+		}
+
+		for (List<SearchEntity> group : groups.values()) {
+			List<Point> starts = new ArrayList<Point>(group.size());
+			for (SearchEntity e : group) {
+				starts.add(e.getPoint());
+			}
+
+			long st = System.nanoTime();
+			List<SearchResult> results = group.get(0).getAlgorithm().searchMany(starts, goal);
+			double time = (System.nanoTime() - st) / 1e6 / group.size();
+
+			for (int i = 0; i < group.size(); i++) {
+				group.get(i).follow(goal, results.get(i), time);
+			}
+		}
+
+		for (SearchEntity e : entities) {
+			e.commit();
+		}
+	}
 }
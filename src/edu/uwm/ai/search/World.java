@@ -23,13 +23,14 @@
 package edu.uwm.ai.search;
 
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
 
 import processing.core.PApplet;
 import edu.uwm.ai.search.agent.PlayerEntity;
+import edu.uwm.ai.search.util.BitGrid;
+import edu.uwm.ai.search.util.ComponentIndex;
+import edu.uwm.ai.search.util.FlowField;
 import edu.uwm.ai.search.util.Point;
 
 /**
@@ -42,18 +43,18 @@ public class World
 
 	private final int w;
 	private final int h;
-	private final boolean[] obstacles;
-	private final Random random = new Random();
-	private int[] worldMap;
+	private final BitGrid obstacles;
+	private final Random random;
+	private final FlowField flowField;
+	private final List<WorldListener> listeners = new ArrayList<WorldListener>();
+	private final DirtyRegion pending = new DirtyRegion();
+	private volatile int version;
+	private volatile ComponentIndex components;
+	private int updateDepth;
 
 	public World(PApplet parent, int w, int h)
 	{
-		this.parent = parent;
-
-		this.w = w;
-		this.h = h;
-		this.obstacles = new boolean[w * h];
-		this.worldMap = new int[w * h];
+		this(parent, w, h, new Random());
 
 		for (int k = 0; k < 20; k++) {
 			int rw = (int) (Math.random() * 5) + 2;
@@ -64,7 +65,7 @@ public class World
 
 			for (int dw = 0; dw < rw; dw++) {
 				for (int dh = 0; dh < rh; dh++) {
-					if (j + dh + 5 > h) {
+					if (j + dh + 5 > h || i + dw >= w) {
 						continue;
 					}
 
@@ -74,6 +75,58 @@ public class World
 		}
 	}
 
+	/**
+	 * Creates a world with no display in which every cell is blocked independently with the given
+	 * probability. The same seed always yields the same obstacles and the same sequence of random
+	 * free points, so worlds built this way can be reproduced between benchmark runs.
+	 * 
+	 * @param w
+	 *            The number of columns in the world
+	 * @param h
+	 *            The number of rows in the world
+	 * @param density
+	 *            The probability, between 0 and 1, that any given cell holds an obstacle
+	 * @param seed
+	 *            The seed for the obstacle layout and for {@link #getRandomFreePoint()}
+	 */
+	public World(int w, int h, double density, long seed)
+	{
+		this(null, w, h, new Random(seed));
+
+		for (int j = 0; j < h; j++) {
+			for (int i = 0; i < w; i++) {
+				if (random.nextDouble() < density) {
+					setObstacle(i, j);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a world with no display and no obstacles, e.g. to be filled in from a map file by
+	 * {@link MapFile}.
+	 * 
+	 * @param w
+	 *            The number of columns in the world
+	 * @param h
+	 *            The number of rows in the world
+	 */
+	public World(int w, int h)
+	{
+		this(null, w, h, new Random());
+	}
+
+	private World(PApplet parent, int w, int h, Random random)
+	{
+		this.parent = parent;
+
+		this.w = w;
+		this.h = h;
+		this.random = random;
+		this.obstacles = new BitGrid(w, h);
+		this.flowField = new FlowField(obstacles);
+	}
+
 	public Point getRandomFreePoint()
 	{
 		Point p;
@@ -95,6 +148,42 @@ public class World
 		return h;
 	}
 
+	/**
+	 * Returns the number of cells in the world. Cell ids run from zero up to, but not including,
+	 * this value.
+	 * 
+	 * @return The width of the world times its height.
+	 */
+	public int getCellCount()
+	{
+		return w * h;
+	}
+
+	/**
+	 * Returns a dense integer id for the cell at the given position, suitable for indexing arrays of
+	 * length {@link #getCellCount()}. The position is not checked.
+	 * 
+	 * @param i
+	 *            The column of the cell
+	 * @param j
+	 *            The row of the cell
+	 * @return The id of the cell.
+	 */
+	public int getCellId(int i, int j)
+	{
+		return getIndex(i, j);
+	}
+
+	public int getCellX(int id)
+	{
+		return id % w;
+	}
+
+	public int getCellY(int id)
+	{
+		return id / w;
+	}
+
 	public boolean isValidPosition(Point p)
 	{
 		return isValidPosition(p.getX(), p.getY());
@@ -105,6 +194,47 @@ public class World
 		return i >= 0 && j >= 0 && i < w && j < h && !hasObstacle(i, j);
 	}
 
+	/**
+	 * Determines whether a path leads from one point to another, in constant time once the regions
+	 * of the world have been labelled. Adding an obstacle can split a region but never join two,
+	 * which a union-find forest cannot undo. An obstacle whose free neighbours stay joined around it
+	 * cannot split its region and is simply marked in the labels as it is added; after any other,
+	 * the labels are computed again, in one pass over the world, the first time they are needed.
+	 * 
+	 * @return True if both points are free and lie in the same region.
+	 */
+	public boolean isReachable(Point a, Point b)
+	{
+		if (!isValidPosition(a) || !isValidPosition(b)) {
+			return false;
+		}
+
+		return getComponents().isConnected(a.getX(), a.getY(), b.getX(), b.getY());
+	}
+
+	/**
+	 * Returns the labels of the connected regions of free cells, computing them if obstacles have
+	 * been added since they were last computed. Any number of threads may call this as long as the
+	 * world is not being changed.
+	 */
+	public ComponentIndex getComponents()
+	{
+		ComponentIndex index = components;
+
+		if (index == null || index.getVersion() != version) {
+			synchronized (this) {
+				index = components;
+
+				if (index == null || index.getVersion() != version) {
+					index = new ComponentIndex(obstacles, version);
+					components = index;
+				}
+			}
+		}
+
+		return index;
+	}
+
 	public boolean isAccessableThrough(Point dest, Point origin)
 	{
 		if (!isValidPosition(dest) || !isValidPosition(origin)) {
@@ -140,12 +270,105 @@ public class World
 
 	public boolean hasObstacle(int i, int j)
 	{
-		return obstacles[getIndex(i, j)];
+		return obstacles.isBlocked(i, j);
 	}
 
 	public void setObstacle(int i, int j)
 	{
-		obstacles[getIndex(i, j)] = true;
+		if (i < 0 || j < 0 || i >= w || j >= h) {
+			throw new IllegalArgumentException("Point is not in the world.");
+		}
+
+		if (obstacles.isBlocked(i, j)) {
+			return;
+		}
+
+		obstacles.setBlocked(i, j, true);
+		flowField.invalidate();
+
+		// Keep the region labels current when the new obstacle cannot have split a region, so
+		// that only obstacles which might have do cost a full labelling on the next search.
+		ComponentIndex index = components;
+		if (index != null && index.getVersion() == version) {
+			index.block(obstacles, i, j, version + 1);
+		}
+
+		version++;
+		pending.add(i, j);
+
+		if (updateDepth == 0) {
+			publish();
+		}
+	}
+
+	/**
+	 * Returns a number that goes up whenever an obstacle is added, so anything derived from the
+	 * layout of the world can tell whether it is stale.
+	 */
+	public int getVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * Starts a batch of changes. Listeners hear about the changes made until the matching call to
+	 * {@link #endUpdate()} all at once, which lets them update each derived structure once rather
+	 * than once per cell. Batches may be nested, in which case the outermost one counts.
+	 */
+	public void beginUpdate()
+	{
+		updateDepth++;
+	}
+
+	/**
+	 * Ends a batch of changes started by {@link #beginUpdate()}, and reports them to the listeners
+	 * if this was the outermost batch.
+	 */
+	public void endUpdate()
+	{
+		if (updateDepth == 0) {
+			throw new IllegalStateException("No update is in progress.");
+		}
+
+		if (--updateDepth == 0) {
+			publish();
+		}
+	}
+
+	private void publish()
+	{
+		if (pending.isEmpty()) {
+			return;
+		}
+
+		if (!listeners.isEmpty()) {
+			WorldChange change = new WorldChange(this, version, new DirtyRegion(pending));
+
+			for (WorldListener l : listeners) {
+				l.worldChanged(change);
+			}
+		}
+
+		pending.clear();
+	}
+
+	public void addListener(WorldListener l)
+	{
+		listeners.add(l);
+	}
+
+	public void removeListener(WorldListener l)
+	{
+		listeners.remove(l);
+	}
+
+	/**
+	 * Returns the packed obstacle grid backing this world. Its queries need no bounds checks for
+	 * cells up to one step outside of the world, which are always blocked.
+	 */
+	public BitGrid getGrid()
+	{
+		return obstacles;
 	}
 
 	public int getBlockWidth()
@@ -176,8 +399,8 @@ public class World
 	}
 
 	/**
-	 * Updates the 2D array worldMap with the cost to reach the player entity in each slot. This is
-	 * used by FloodFillSearch to perform search.
+	 * Rebuilds the flow field with the cost to reach the player entity from each cell. This is used
+	 * by FloodFillSearch to perform search.
 	 * 
 	 * @param player
 	 *            The user's PlayerEntity
@@ -185,92 +408,32 @@ public class World
 	 */
 	public int updateWorldMap(PlayerEntity player)
 	{
-		Point playerPoint = player.getPoint();
-		LinkedList<Point> openList = new LinkedList<Point>();
-		HashSet<Point> closedList = new HashSet<Point>();
-
-		openList.addLast(playerPoint);
-		// Set player's location to 0 cost.
-		worldMap[getIndex(playerPoint.getY(), playerPoint.getX())] = 0;
-		// The map updating actually resembles regular search to a degree.
-		int cost = 0;
-		while (!openList.isEmpty()) {
-			cost++;
-			Point currentPt = openList.pollFirst();
-			int currentCost = worldMap[getIndex(currentPt.getY(), currentPt.getX())];
-			for (Point newP : getSuccessors(currentPt)) {
-
-				// If the point hasn't already been assigned a value, its cost is its parent's cost
-				// plus one.
-				if (!closedList.contains(newP) && !openList.contains(newP)) {
-					worldMap[getIndex(newP.getY(), newP.getX())] = currentCost + 1;
-					openList.addLast(newP);
-				}
-			}
-			closedList.add(currentPt);
-		}
-		return cost;
+		return flowField.update(player.getPoint().getX(), player.getPoint().getY());
 	}
 
 	/**
-	 * Takes a point and returns the valid successors in all directions.
-	 * 
-	 * @param p
-	 *            Point object to use as base for search of successors
-	 * @return A List of valid (i.e. unobstructed) successor points.
+	 * Returns the flow field last built by {@link #updateWorldMap(PlayerEntity)}.
 	 */
-	private List<Point> getSuccessors(Point p)
+	public FlowField getFlowField()
 	{
-		List<Point> successors = new ArrayList<Point>(8);
-		successors.add(new Point(p.getX() + 0, p.getY() - 1));
-		successors.add(new Point(p.getX() + 0, p.getY() + 1));
-		successors.add(new Point(p.getX() - 1, p.getY() + 0));
-		successors.add(new Point(p.getX() + 1, p.getY() + 0));
-		successors.add(new Point(p.getX() + 1, p.getY() + 1));
-		successors.add(new Point(p.getX() + 1, p.getY() - 1));
-		successors.add(new Point(p.getX() - 1, p.getY() + 1));
-		successors.add(new Point(p.getX() - 1, p.getY() - 1));
-
-		return pruneInvalid(successors, p);
-	}
-
-	/**
-	 * Takes in a list of points, determines whether or not they are valid (i.e. unobstructed), and
-	 * returns a list of valid points
-	 * 
-	 * @param points
-	 *            A List of point objects to be checked for validity
-	 * @param p
-	 *            The location of the point from which 'points' was generated
-	 * @return A List of valid points.
-	 */
-	private List<Point> pruneInvalid(List<Point> points, Point p)
-	{
-		List<Point> newPoints = new ArrayList<Point>();
-
-		for (Point succ_p : points) {
-			if (isValidPosition(succ_p) && (succ_p.getX() == p.getX() || succ_p.getY() == p.getY() || isAccessableThrough(succ_p, p))) {
-				newPoints.add(succ_p);
-			}
-		}
-
-		return newPoints;
+		return flowField;
 	}
 
 	/**
-	 * Takes a Point object and returns its distance from the goal according to the worldMap
+	 * Takes a Point object and returns its distance from the goal according to the flow field
 	 * 
 	 * @param loc
 	 *            A Point whose distance from the goal is desired
-	 * @return An integer representing the number of steps from loc to the goal.
+	 * @return An integer representing the number of steps from loc to the goal, or -1 if the goal
+	 *         cannot be reached from loc.
 	 */
 	public int getCostOfSquare(Point loc)
 	{
-		return worldMap[getIndex(loc.getY(), loc.getX())];
+		return flowField.getDistance(loc.getX(), loc.getY());
 	}
 
 	private int getIndex(int i, int j)
 	{
-		return j * h + i;
+		return j * w + i;
 	}
 }
@@ -0,0 +1,65 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search;
+
+/**
+ * A batch of changes made to the obstacles of a {@link World}, as reported to its listeners.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class WorldChange
+{
+	private final World w;
+	private final int version;
+	private final DirtyRegion region;
+
+	public WorldChange(World w, int version, DirtyRegion region)
+	{
+		this.w = w;
+		this.version = version;
+		this.region = region;
+	}
+
+	public World getWorld()
+	{
+		return w;
+	}
+
+	/**
+	 * Returns the version of the world once every change in the batch has been made.
+	 */
+	public int getVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * Returns the cells that changed. The region is shared by every listener and must not be
+	 * modified.
+	 */
+	public DirtyRegion getRegion()
+	{
+		return region;
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.agent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * Updates a group of search entities by planning all of their paths at once on an executor, then
+ * moving them one at a time in list order. Every entity plans against the same copy of the target's
+ * position and before any entity has moved, so the result does not depend on how the plans were
+ * scheduled.
+ * 
+ * The world must not be changed while a tick is being planned. Search algorithms that keep state
+ * between calls are only safe if each entity has its own instance, or if the algorithm is
+ * synchronized.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class ParallelPlanner
+{
+	private final ExecutorService executor;
+
+	/**
+	 * Creates a planner with a fork-join pool that has one thread per processor.
+	 */
+	public ParallelPlanner()
+	{
+		this(new ForkJoinPool());
+	}
+
+	/**
+	 * @param executor
+	 *            The executor to plan on, e.g. a fork-join pool or, on newer JVMs, a virtual thread
+	 *            per task executor
+	 */
+	public ParallelPlanner(ExecutorService executor)
+	{
+		this.executor = executor;
+	}
+
+	/**
+	 * Plans and then moves every entity, as if {@link SearchEntity#update()} had been called on
+	 * each of them in order.
+	 * 
+	 * @param entities
+	 *            The entities to update
+	 * @param target
+	 *            The current position of the entity being chased
+	 */
+	public void update(List<SearchEntity> entities, Point target)
+	{
+		final Point goal = new Point(target);
+
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(entities.size());
+		for (final SearchEntity e : entities) {
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call()
+				{
+					e.plan(goal);
+					return null;
+				}
+			});
+		}
+
+		try {
+			for (Future<Void> f : executor.invokeAll(tasks)) {
+				f.get();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return;
+		} catch (ExecutionException ex) {
+			throw new RuntimeException(ex.getCause());
+		}
+
+		for (SearchEntity e : entities) {
+			e.commit();
+		}
+	}
+
+	/**
+	 * Stops the executor once any tasks already submitted have finished.
+	 */
+	public void shutdown()
+	{
+		executor.shutdown();
+	}
+}
@@ -26,8 +26,11 @@ import java.util.List;
 
 import processing.core.PApplet;
 import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.search.ResumableSearch;
 import edu.uwm.ai.search.search.SearchAlgorithm;
 import edu.uwm.ai.search.search.SearchResult;
+import edu.uwm.ai.search.util.LatencyHistogram;
+import edu.uwm.ai.search.util.LatencyRegistry;
 import edu.uwm.ai.search.util.Point;
 
 /**
@@ -49,6 +52,12 @@ public class SearchEntity extends Entity
 	private double pTime;
 	private double tTime;
 	private int totalSearches;
+	private LatencyHistogram latencies = new LatencyHistogram();
+	private LatencyHistogram algorithmLatencies;
+
+	private boolean searching;
+	private Point searchGoal;
+	private long searchTime;
 
 	// TODO - store costs and draw them
 
@@ -60,6 +69,8 @@ public class SearchEntity extends Entity
 		this.c = c;
 		this.e = e;
 		this.algorithm = algorithm;
+
+		algorithmLatencies = LatencyRegistry.getDefault().get(algorithm.toString());
 	}
 
 	@Override
@@ -112,7 +123,18 @@ public class SearchEntity extends Entity
 
 	public String getResults()
 	{
-		return String.format("[%3s] %8.2fms total, %8.2fms avg, %6d nodes expanded last (%6d average), %6d total", algorithm, tTime, totalSearches == 0 ? 0 : (tTime / totalSearches), pCost, totalSearches == 0 ? 0 : (tCost / totalSearches), tCost);
+		LatencyHistogram.Snapshot s = latencies.snapshot();
+		return String.format("[%3s] %8.2fms total, p50 %6.2fms, p99 %6.2fms, max %6.2fms, %6d nodes expanded last (%6d average)", algorithm, tTime, s.getValueAtPercentile(50) / 1e6, s.getValueAtPercentile(99) / 1e6, s.getMax() / 1e6, pCost, totalSearches == 0 ? 0 : (tCost / totalSearches));
+	}
+
+	/**
+	 * Returns the histogram of the time taken by each search of this entity. The same times are
+	 * also recorded in the histogram of its algorithm in the {@link LatencyRegistry#getDefault()
+	 * default registry}.
+	 */
+	public LatencyHistogram getLatencies()
+	{
+		return latencies;
 	}
 
 	public double getPTime()
@@ -168,32 +190,198 @@ public class SearchEntity extends Entity
 
 	public void update()
 	{
-		if (getPoint().equals(e.getPoint())) {
-			path.clear();
+		plan(e.getPoint());
+		commit();
+	}
+
+	/**
+	 * Searches for a new path to the tracked entity if it has moved since the last search, or if
+	 * there is no path left to follow. This does not move the entity, and reads nothing but the world
+	 * and this entity, so entities can plan concurrently as long as nothing moves in the meantime.
+	 * 
+	 * @param goal
+	 *            The position of the tracked entity, which the caller must not change while this
+	 *            method runs
+	 */
+	public void plan(Point goal)
+	{
+		if (getPoint().equals(goal)) {
+			if (path != null) {
+				path.clear();
+			}
+
 			return;
 		}
 
-		if (path == null || path.isEmpty() || (lastGoal != null && hasEntityMoved())) {
-			lastGoal = new Point(e.getPoint());
-
+		if (needsPath(goal)) {
 			long st = System.nanoTime();
-			SearchResult result = algorithm.search(getPoint(), e.getPoint());
-			pTime = (System.nanoTime() - st) / 1e6;
-			pCost = result.getNumberNodesExpanded();
+			SearchResult result = algorithm.search(getPoint(), goal);
+			follow(goal, result, (System.nanoTime() - st) / 1e6);
+		}
+	}
 
-			path = result.getPath();
-			if (!path.isEmpty()) {
-				tTime += pTime;
-				tCost += pCost;
-				totalSearches++;
-
-				if (!path.isEmpty()) {
-					path.remove(0);
-				}
-			}
+	/**
+	 * Determines whether {@link #plan(Point)} would search for a new path to the given goal.
+	 * 
+	 * @param goal
+	 *            The position of the tracked entity
+	 * @return True if the entity is not at the goal and either has no path left or found its path
+	 *         to a different goal.
+	 */
+	public boolean needsPath(Point goal)
+	{
+		if (getPoint().equals(goal)) {
+			return false;
 		}
 
+		return path == null || path.isEmpty() || (lastGoal != null && !lastGoal.equals(goal));
+	}
+
+	/**
+	 * Replaces the path of the entity with one found for it elsewhere, e.g. by a search shared with
+	 * other entities chasing the same goal.
+	 * 
+	 * @param goal
+	 *            The goal the path was found for
+	 * @param result
+	 *            The result of a search from the position of this entity
+	 * @param time
+	 *            The time in milliseconds to charge this entity for the search
+	 */
+	public void follow(Point goal, SearchResult result, double time)
+	{
+		accept(goal, result, time);
+
 		if (!path.isEmpty()) {
+			path.remove(0);
+		}
+	}
+
+	private void accept(Point goal, SearchResult result, double time)
+	{
+		if (lastGoal == null) {
+			lastGoal = new Point(goal);
+		} else {
+			lastGoal.setX(goal.getX());
+			lastGoal.setY(goal.getY());
+		}
+
+		pTime = time;
+		pCost = result.getNumberNodesExpanded();
+
+		long nanos = Math.round(time * 1e6);
+		latencies.record(nanos);
+		algorithmLatencies.record(nanos);
+
+		path = result.getPath();
+		if (!path.isEmpty()) {
+			tTime += pTime;
+			tCost += pCost;
+			totalSearches++;
+		}
+	}
+
+	/**
+	 * Readies the entity to be stepped by {@link #resume(int, long)}. If the algorithm of the
+	 * entity is a {@link ResumableSearch}, this starts a search from the position of the entity if
+	 * it needs a path and is not already searching. A search that is under way is left to finish
+	 * even if the goal has moved, since restarting it on every move of the goal may keep it from
+	 * ever finishing; the next search starts from wherever the entity is by then. Any other
+	 * algorithm is run to the end by {@link #plan(Point)}.
+	 * 
+	 * @param goal
+	 *            The position of the tracked entity
+	 * @return True if the entity has a search to resume.
+	 */
+	public boolean prepare(Point goal)
+	{
+		if (!(algorithm instanceof ResumableSearch)) {
+			plan(goal);
+			return false;
+		}
+
+		if (searching) {
+			return true;
+		}
+
+		if (getPoint().equals(goal)) {
+			if (path != null) {
+				path.clear();
+			}
+
+			return false;
+		}
+
+		if (!needsPath(goal)) {
+			return false;
+		}
+
+		((ResumableSearch) algorithm).start(getPoint(), goal);
+
+		searching = true;
+		searchGoal = new Point(goal);
+		searchTime = 0;
+		return true;
+	}
+
+	/**
+	 * Advances the search started by {@link #prepare(Point)}. While the search runs the entity
+	 * follows the best path found so far, and once it is done, the final path. Both paths lead from
+	 * where the search started, so the entity only follows them from its current position onwards;
+	 * if it has left them, it waits for the next search instead.
+	 * 
+	 * @param maxExpansions
+	 *            The largest number of nodes to expand
+	 * @param deadline
+	 *            The value of {@link System#nanoTime()} at which to suspend the search
+	 * @return The number of nodes expanded.
+	 */
+	public int resume(int maxExpansions, long deadline)
+	{
+		if (!searching) {
+			return 0;
+		}
+
+		ResumableSearch search = (ResumableSearch) algorithm;
+
+		long st = System.nanoTime();
+		int expanded = search.step(maxExpansions, deadline);
+		searchTime += System.nanoTime() - st;
+
+		SearchResult result = search.getResult();
+
+		if (search.isDone()) {
+			searching = false;
+			accept(searchGoal, result, searchTime / 1e6);
+		} else {
+			path = result.getPath();
+		}
+
+		int i = path.indexOf(getPoint());
+		if (i < 0) {
+			path.clear();
+		} else {
+			path.subList(0, i + 1).clear();
+		}
+
+		return expanded;
+	}
+
+	/**
+	 * Determines whether the entity has a search started by {@link #prepare(Point)} that is not
+	 * done yet.
+	 */
+	public boolean isSearching()
+	{
+		return searching;
+	}
+
+	/**
+	 * Moves the entity one step along the path found by the last call to {@link #plan(Point)}.
+	 */
+	public void commit()
+	{
+		if (path != null && !path.isEmpty()) {
 			moveTo(path.remove(0));
 		}
 	}
@@ -0,0 +1,139 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.agent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uwm.ai.search.search.ResumableSearch;
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * Advances the searches of a group of entities a little every frame, so that no search holds up
+ * drawing for longer than the frame's budget. The budget is a number of expansions, optionally
+ * capped by a time limit, and is shared evenly between the entities that are searching. Whatever
+ * an entity leaves unused because its search finished goes to the ones still running.
+ * 
+ * Only entities whose algorithm is a {@link ResumableSearch} are time sliced; any other entity
+ * that needs a path searches for it in full, as if it were updated on its own. Entities only move
+ * when {@link #commit(List)} is called, so the searches can be stepped more often than the
+ * entities move.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class SearchScheduler
+{
+	private final int expansionsPerFrame;
+	private final long nanosPerFrame;
+
+	private final List<SearchEntity> active = new ArrayList<SearchEntity>();
+	private int lastExpansions;
+
+	/**
+	 * @param expansionsPerFrame
+	 *            The number of nodes all searches together may expand in a frame
+	 */
+	public SearchScheduler(int expansionsPerFrame)
+	{
+		if (expansionsPerFrame <= 0) {
+			throw new IllegalArgumentException("Budget must be positive.");
+		}
+
+		this.expansionsPerFrame = expansionsPerFrame;
+		this.nanosPerFrame = Long.MAX_VALUE;
+	}
+
+	/**
+	 * @param expansionsPerFrame
+	 *            The number of nodes all searches together may expand in a frame
+	 * @param microsPerFrame
+	 *            The number of microseconds all searches together may take in a frame
+	 */
+	public SearchScheduler(int expansionsPerFrame, long microsPerFrame)
+	{
+		if (expansionsPerFrame <= 0 || microsPerFrame <= 0) {
+			throw new IllegalArgumentException("Budget must be positive.");
+		}
+
+		this.expansionsPerFrame = expansionsPerFrame;
+		this.nanosPerFrame = microsPerFrame * 1000;
+	}
+
+	/**
+	 * Starts a search for each entity that needs a path and advances every search under way, within
+	 * the frame's budget.
+	 * 
+	 * @param entities
+	 *            The entities to plan for
+	 * @param target
+	 *            The current position of the entity being chased
+	 */
+	public void step(List<SearchEntity> entities, Point target)
+	{
+		Point goal = new Point(target);
+		long deadline = nanosPerFrame == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + nanosPerFrame;
+
+		active.clear();
+		for (SearchEntity e : entities) {
+			if (e.prepare(goal)) {
+				active.add(e);
+			}
+		}
+
+		int remaining = expansionsPerFrame;
+		while (!active.isEmpty() && remaining > 0 && System.nanoTime() < deadline) {
+			int share = Math.max(1, remaining / active.size());
+
+			for (int i = 0; i < active.size() && remaining > 0; i++) {
+				SearchEntity e = active.get(i);
+				remaining -= e.resume(Math.min(share, remaining), deadline);
+
+				if (!e.isSearching()) {
+					active.remove(i--);
+				}
+			}
+		}
+
+		lastExpansions = expansionsPerFrame - remaining;
+	}
+
+	/**
+	 * Moves every entity one step along its path.
+	 */
+	public void commit(List<SearchEntity> entities)
+	{
+		for (SearchEntity e : entities) {
+			e.commit();
+		}
+	}
+
+	/**
+	 * Returns the number of nodes expanded by the searches during the last call to
+	 * {@link #step(List, Point)}.
+	 */
+	public int getLastExpansions()
+	{
+		return lastExpansions;
+	}
+}
@@ -33,8 +33,8 @@ public class ChebyshevDistance implements Heuristic
 	@Override
 	public double heuristic(Point p, Point goal)
 	{
-		int xDiff = p.getX() - goal.getX();
-		int yDiff = p.getY() - goal.getY();
+		int xDiff = Math.abs(p.getX() - goal.getX());
+		int yDiff = Math.abs(p.getY() - goal.getY());
 
 		return Math.max(xDiff, yDiff);
 	}
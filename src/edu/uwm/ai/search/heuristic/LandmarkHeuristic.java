@@ -0,0 +1,482 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.heuristic;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.search.BaseSearchAlgorithm;
+import edu.uwm.ai.search.util.BitGrid;
+import edu.uwm.ai.search.util.FlowField;
+import edu.uwm.ai.search.util.IndexedHeap;
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * The ALT heuristic: the exact distance from a handful of landmark cells to every other cell is
+ * computed once, and the distance between two cells is bounded below by the triangle inequality,
+ * |d(L, p) - d(L, goal)| for the landmark L that gives the largest bound. Unlike the geometric
+ * heuristics this knows about walls, so on maps of rooms and mazes A* expands far fewer cells.
+ * 
+ * Landmarks are chosen by farthest-point selection over a breadth-first flood, which spreads them
+ * along the edges of the map. The exact distances, with diagonal moves costing
+ * {@link BaseSearchAlgorithm#diagCost}, are then computed with one Dijkstra search per landmark, in
+ * parallel.
+ * 
+ * Each distance is stored as a 16-bit fixed-point number, rounded down, with the landmarks of a cell
+ * next to each other so that a lookup reads two short runs of memory. Where rounding loses
+ * precision, one unit is taken off every difference so that the heuristic stays admissible, though
+ * it may then be inconsistent by up to a unit between neighbouring cells. The tables can be saved
+ * to a file and loaded again for the same map.
+ * 
+ * Obstacles added to the world after the tables were computed only make distances longer, so the
+ * heuristic stays admissible and consistent, though less informed; build it again once the world
+ * has changed a lot. If the cost of diagonal moves changes, the tables are ignored and the octile
+ * distance is used instead.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class LandmarkHeuristic implements Heuristic
+{
+	/**
+	 * The first four bytes of a saved table, "ALT " in ASCII.
+	 */
+	public static final int MAGIC = 0x414c5420;
+
+	private static final int VERSION = 1;
+
+	/**
+	 * The stored distance of a cell that cannot be reached from a landmark.
+	 */
+	private static final char UNREACHABLE = Character.MAX_VALUE;
+
+	private final int w;
+	private final int k;
+	private final int[] landmarks;
+	private final double diagCost;
+	private final long fingerprint;
+
+	/**
+	 * The distances from every landmark to each cell, at index cell * k + landmark.
+	 */
+	private final char[] table;
+
+	/**
+	 * The number of units per unit of distance of each landmark.
+	 */
+	private final double[] scales;
+
+	/**
+	 * The number of units to take off a difference of each landmark, one if its distances were
+	 * rounded and zero if they are exact.
+	 */
+	private final int[] slack;
+
+	/**
+	 * Computes the tables of eight landmarks, on one thread per processor.
+	 */
+	public LandmarkHeuristic(World world)
+	{
+		this(world, 8);
+	}
+
+	/**
+	 * Computes the tables of the given number of landmarks, on one thread per processor.
+	 */
+	public LandmarkHeuristic(World world, int landmarks)
+	{
+		this(world, landmarks, null);
+	}
+
+	/**
+	 * Computes the tables of the given number of landmarks.
+	 * 
+	 * @param world
+	 *            The world to compute distances in
+	 * @param landmarks
+	 *            The number of landmarks, at least one. A world with fewer reachable cells gets one
+	 *            landmark per cell.
+	 * @param executor
+	 *            The executor to compute the distances of the landmarks on, or null to use a pool
+	 *            of one thread per processor for the duration of the call
+	 */
+	public LandmarkHeuristic(World world, int landmarks, ExecutorService executor)
+	{
+		if (landmarks < 1) {
+			throw new IllegalArgumentException("At least one landmark is needed.");
+		}
+
+		this.w = world.getWidth();
+		this.diagCost = BaseSearchAlgorithm.diagCost;
+		this.fingerprint = world.getGrid().fingerprint();
+		this.landmarks = selectLandmarks(world, landmarks);
+		this.k = this.landmarks.length;
+		this.table = new char[world.getCellCount() * k];
+		this.scales = new double[k];
+		this.slack = new int[k];
+
+		ExecutorService pool = executor == null ? Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()) : executor;
+
+		try {
+			List<Future<char[]>> futures = new ArrayList<Future<char[]>>(k);
+			for (int i = 0; i < k; i++) {
+				final BitGrid grid = world.getGrid();
+				final int landmark = i;
+
+				futures.add(pool.submit(new Callable<char[]>() {
+					@Override
+					public char[] call()
+					{
+						return distances(grid, landmark);
+					}
+				}));
+			}
+
+			for (int i = 0; i < k; i++) {
+				char[] distances = futures.get(i).get();
+
+				for (int c = 0; c < distances.length; c++) {
+					table[c * k + i] = distances[c];
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			if (executor == null) {
+				pool.shutdown();
+			}
+		}
+	}
+
+	private LandmarkHeuristic(int w, int[] landmarks, double diagCost, long fingerprint, char[] table, double[] scales, int[] slack)
+	{
+		this.w = w;
+		this.k = landmarks.length;
+		this.landmarks = landmarks;
+		this.diagCost = diagCost;
+		this.fingerprint = fingerprint;
+		this.table = table;
+		this.scales = scales;
+		this.slack = slack;
+	}
+
+	/**
+	 * Picks landmarks one at a time, each the free cell farthest in moves from all of the landmarks
+	 * picked before it. The first is the cell farthest from a free cell picked at random, with a
+	 * fixed seed so that the same map always gets the same landmarks. Cells that cannot be reached
+	 * from the first cell are never picked, so landmarks are not wasted on small islands.
+	 */
+	private static int[] selectLandmarks(World world, int count)
+	{
+		BitGrid grid = world.getGrid();
+		FlowField flood = new FlowField(grid);
+
+		int n = world.getCellCount();
+		int[] nearest = new int[n];
+
+		int seed = -1;
+		Random random = new Random(n);
+		for (int tries = 0; tries < 64 && seed == -1; tries++) {
+			int c = random.nextInt(n);
+
+			if (!grid.isBlocked(world.getCellX(c), world.getCellY(c))) {
+				seed = c;
+			}
+		}
+
+		for (int c = 0; c < n && seed == -1; c++) {
+			if (!grid.isBlocked(world.getCellX(c), world.getCellY(c))) {
+				seed = c;
+			}
+		}
+
+		if (seed == -1) {
+			throw new IllegalArgumentException("The world has no free cells.");
+		}
+
+		flood.update(world.getCellX(seed), world.getCellY(seed));
+		for (int c = 0; c < n; c++) {
+			nearest[c] = flood.getDistance(world.getCellX(c), world.getCellY(c));
+		}
+
+		int[] landmarks = new int[count];
+		int found = 0;
+
+		for (int next = farthest(nearest); found < count && next != -1; next = farthest(nearest)) {
+			landmarks[found++] = next;
+
+			flood.update(world.getCellX(next), world.getCellY(next));
+			for (int c = 0; c < n; c++) {
+				nearest[c] = Math.min(nearest[c], flood.getDistance(world.getCellX(c), world.getCellY(c)));
+			}
+		}
+
+		// The seed is the only cell it can reach.
+		if (found == 0) {
+			landmarks[found++] = seed;
+		}
+
+		return Arrays.copyOf(landmarks, found);
+	}
+
+	/**
+	 * Returns the cell with the largest distance, or -1 if every reachable cell is a landmark.
+	 */
+	private static int farthest(int[] nearest)
+	{
+		int best = -1;
+		int bestDistance = 0;
+
+		for (int c = 0; c < nearest.length; c++) {
+			if (nearest[c] > bestDistance) {
+				best = c;
+				bestDistance = nearest[c];
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * Computes the distance from a landmark to every cell with Dijkstra's algorithm, and rounds the
+	 * distances down to fixed-point numbers as large as fit in a char. The scale is a power of two,
+	 * so the distances are exact if the cost of a diagonal move is a whole number of units.
+	 */
+	private char[] distances(BitGrid grid, int landmark)
+	{
+		int h = grid.getHeight();
+		double[] distance = new double[w * h];
+		Arrays.fill(distance, Double.POSITIVE_INFINITY);
+
+		IndexedHeap open = new IndexedHeap(w * h);
+
+		int source = landmarks[landmark];
+		distance[source] = 0;
+		open.add(source, 0);
+
+		double max = 0;
+
+		while (!open.isEmpty()) {
+			int current = open.poll();
+			int x = current % w;
+			int y = current / w;
+			double d = distance[current];
+
+			max = Math.max(max, d);
+
+			for (int dy = -1; dy <= 1; dy++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					if ((dx == 0 && dy == 0) || grid.isBlocked(x + dx, y + dy)) {
+						continue;
+					}
+
+					if (dx != 0 && dy != 0 && grid.isBlocked(x + dx, y) && grid.isBlocked(x, y + dy)) {
+						continue;
+					}
+
+					int next = current + dy * w + dx;
+					double g = d + (dx != 0 && dy != 0 ? diagCost : 1);
+
+					// The keys are floats, so a cell may come off the heap a little early; it is
+					// simply added again if a shorter distance turns up.
+					if (g < distance[next]) {
+						distance[next] = g;
+						open.add(next, (float) g);
+					}
+				}
+			}
+		}
+
+		double scale = 1;
+		while (max * scale * 2 < UNREACHABLE && scale < 1024) {
+			scale *= 2;
+		}
+		while (max * scale >= UNREACHABLE) {
+			scale /= 2;
+		}
+
+		scales[landmark] = scale;
+		slack[landmark] = scale >= 1 && diagCost * scale == Math.floor(diagCost * scale) ? 0 : 1;
+
+		char[] units = new char[w * h];
+		for (int c = 0; c < units.length; c++) {
+			units[c] = distance[c] == Double.POSITIVE_INFINITY ? UNREACHABLE : (char) Math.floor(distance[c] * scale);
+		}
+
+		return units;
+	}
+
+	@Override
+	public double heuristic(Point p, Point goal)
+	{
+		int dx = Math.abs(p.getX() - goal.getX());
+		int dy = Math.abs(p.getY() - goal.getY());
+
+		double octile = Math.min(dx, dy) * Math.min(BaseSearchAlgorithm.diagCost, 2) + Math.abs(dx - dy);
+
+		if (BaseSearchAlgorithm.diagCost != diagCost) {
+			return octile;
+		}
+
+		int a = (p.getY() * w + p.getX()) * k;
+		int b = (goal.getY() * w + goal.getX()) * k;
+
+		double best = octile;
+		for (int i = 0; i < k; i++) {
+			char da = table[a + i];
+			char db = table[b + i];
+
+			// A landmark that cannot reach both cells says nothing about the distance between them.
+			if (da == UNREACHABLE || db == UNREACHABLE) {
+				continue;
+			}
+
+			int diff = Math.abs(da - db) - slack[i];
+			if (diff > best * scales[i]) {
+				best = diff / scales[i];
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * Returns the ids of the landmark cells, numbered as in {@link World#getCellId(int, int)}.
+	 */
+	public int[] getLandmarks()
+	{
+		return landmarks.clone();
+	}
+
+	/**
+	 * Writes the tables to a file, replacing anything already there.
+	 */
+	public void save(File file) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(36 + k * 16 + table.length * 2);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(w);
+		buffer.putInt(table.length / k / w);
+		buffer.putInt(k);
+		buffer.putDouble(diagCost);
+		buffer.putLong(fingerprint);
+
+		for (int i = 0; i < k; i++) {
+			buffer.putInt(landmarks[i]);
+			buffer.putInt(slack[i]);
+			buffer.putDouble(scales[i]);
+		}
+
+		buffer.asCharBuffer().put(table);
+		buffer.position(buffer.capacity());
+		buffer.flip();
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+		try {
+			FileChannel channel = raf.getChannel();
+			channel.truncate(0);
+
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Reads tables written by {@link #save(File)}.
+	 * 
+	 * @param world
+	 *            The world the tables are for
+	 * @param file
+	 *            The file to read
+	 * @throws IOException
+	 *             If the file cannot be read, is not a table, or was saved for a different map.
+	 */
+	public static LandmarkHeuristic load(World world, File file) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+		try {
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if (buffer.remaining() < 36 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException("Not a landmark table: " + file);
+			}
+
+			int w = buffer.getInt();
+			int h = buffer.getInt();
+			int k = buffer.getInt();
+			double diagCost = buffer.getDouble();
+			long fingerprint = buffer.getLong();
+
+			if (w != world.getWidth() || h != world.getHeight() || fingerprint != world.getGrid().fingerprint()) {
+				throw new IOException("Landmark table was saved for a different map: " + file);
+			}
+
+			if (k < 1 || buffer.remaining() != (long) k * 16 + (long) w * h * k * 2) {
+				throw new IOException("Truncated landmark table: " + file);
+			}
+
+			int[] landmarks = new int[k];
+			int[] slack = new int[k];
+			double[] scales = new double[k];
+
+			for (int i = 0; i < k; i++) {
+				landmarks[i] = buffer.getInt();
+				slack[i] = buffer.getInt();
+				scales[i] = buffer.getDouble();
+			}
+
+			char[] table = new char[w * h * k];
+			CharBuffer chars = buffer.asCharBuffer();
+			chars.get(table);
+
+			return new LandmarkHeuristic(w, landmarks, diagCost, fingerprint, table, scales, slack);
+		} finally {
+			raf.close();
+		}
+	}
+}
@@ -51,7 +51,7 @@ public class AStarSearch extends BaseSearchAlgorithm
 	}
 
 	@Override
-	public SearchResult search(Point initial, final Point goal)
+	protected SearchResult doSearch(Point initial, final Point goal, SearchMetrics metrics)
 	{
 		final Map<Node, Node> pred = new HashMap<Node, Node>();
 
@@ -75,14 +75,17 @@ public class AStarSearch extends BaseSearchAlgorithm
 		});
 
 		Node init = new Node(initial, h.heuristic(initial, goal), 0);
+		metrics.heuristic();
 
 		successors.add(init);
 		pred.put(init, null);
+		metrics.open(successors.size());
 
 		int cost = 0;
 		while (!successors.isEmpty()) {
 			cost++;
 			Node current = successors.poll();
+			metrics.expanded(current.getX(), current.getY());
 
 			if (current.equals(goal)) {
 				return new SearchResult(new ArrayList<Point>(backtrace(pred, current)), cost);
@@ -91,9 +94,14 @@ public class AStarSearch extends BaseSearchAlgorithm
 			for (Node successor : getSuccessors(current)) {
 				if (!hasKey(pred, successor)) {
 					successor.setCost(h.heuristic(successor, goal));
+					metrics.heuristic();
 
 					pred.put(successor, current);
 					successors.add(successor);
+					metrics.generated(successor.getX(), successor.getY());
+					metrics.open(successors.size());
+				} else {
+					metrics.duplicate();
 				}
 			}
 		}
@@ -0,0 +1,298 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.heuristic.Heuristic;
+import edu.uwm.ai.search.util.IndexedHeap;
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * Anytime Repairing A* (Likhachev, Gordon and Thrun), which finds a path quickly with a heuristic
+ * inflated by a large weight and then improves it while time remains. Each pass lowers the weight
+ * and reuses the costs found by the passes before it: a closed cell that gets cheaper is not
+ * reopened in the same pass but set aside and put back on the open list for the next one, so no
+ * cell is expanded more than once per pass.
+ * 
+ * A search stops when the weight reaches one or the deadline passes, and the result carries the
+ * suboptimality bound proven by the last finished pass. The first pass always runs to the end, so
+ * a reachable goal always gets a path even if the deadline is too short for it.
+ * 
+ * Costs, heuristic values and parents live in the calling thread's {@link SearchWorkspace}; the
+ * list of cells set aside is held by this instance, so an instance runs one search at a time.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class AnytimeRepairingAStar extends BaseSearchAlgorithm
+{
+	/**
+	 * The number of expansions between two looks at the clock.
+	 */
+	private static final int CLOCK_MASK = 63;
+
+	private World w;
+	private Heuristic h;
+
+	private final double initialWeight;
+	private final double step;
+	private final long budget;
+
+	private int[] incons = new int[64];
+	private int numIncons;
+
+	private int cost;
+
+	/**
+	 * Creates a search that starts with a weight of three, lowers it by a half after each pass and
+	 * stops after ten milliseconds.
+	 */
+	public AnytimeRepairingAStar(World w, Heuristic h)
+	{
+		this(w, h, 3, 0.5, 10000000L);
+	}
+
+	/**
+	 * @param w
+	 *            The world to search
+	 * @param h
+	 *            An admissible heuristic
+	 * @param initialWeight
+	 *            The weight of the heuristic in the first pass, at least one
+	 * @param step
+	 *            The amount the weight is lowered by after each pass
+	 * @param budget
+	 *            The number of nanoseconds {@link #search(Point, Point)} may take
+	 */
+	public AnytimeRepairingAStar(World w, Heuristic h, double initialWeight, double step, long budget)
+	{
+		super(w);
+
+		if (initialWeight < 1 || step <= 0) {
+			throw new IllegalArgumentException("Weights must not drop below one.");
+		}
+
+		this.w = w;
+		this.h = h;
+		this.initialWeight = initialWeight;
+		this.step = step;
+		this.budget = budget;
+	}
+
+	@Override
+	protected SearchResult doSearch(Point initial, Point goal, SearchMetrics metrics)
+	{
+		return search(initial, goal, System.nanoTime() + budget, metrics);
+	}
+
+	/**
+	 * Searches until the weight reaches one or the deadline passes, whichever comes first.
+	 * 
+	 * @param initial
+	 *            The start point
+	 * @param goal
+	 *            The goal point
+	 * @param deadline
+	 *            The value of {@link System#nanoTime()} after which no further pass is started
+	 * @return The best path found, with the bound proven for it
+	 */
+	public SearchResult search(Point initial, Point goal, long deadline)
+	{
+		SearchMetrics metrics = newMetrics();
+		metrics.start();
+
+		return metrics.finish(search(initial, goal, deadline, metrics));
+	}
+
+	private synchronized SearchResult search(Point initial, Point goal, long deadline, SearchMetrics metrics)
+	{
+		// The deadline variant does not go through search(Point, Point), so check the regions here.
+		if (!w.isReachable(initial, goal)) {
+			return new SearchResult(new ArrayList<Point>(), 0);
+		}
+
+		SearchWorkspace ws = SearchWorkspace.get(w);
+		IndexedHeap open = ws.getOpen();
+		ws.reset();
+
+		int start = w.getCellId(initial.getX(), initial.getY());
+		int target = w.getCellId(goal.getX(), goal.getY());
+
+		cost = 0;
+		numIncons = 0;
+
+		double weight = initialWeight;
+		ws.see(start, 0, (float) h.heuristic(initial, goal), -1);
+		open.add(start, (float) (weight * ws.getH(start)));
+		metrics.heuristic();
+		metrics.open(open.size());
+
+		improvePath(ws, goal, target, weight, Long.MAX_VALUE, metrics);
+
+		if (!ws.isSeen(target)) {
+			return new SearchResult(new ArrayList<Point>(), cost);
+		}
+
+		List<Point> path = ws.backtrace(target);
+		double bound = Math.min(weight, proveBound(ws, target));
+
+		while (bound > 1 && System.nanoTime() < deadline) {
+			weight = Math.max(1, weight - step);
+
+			// Everything set aside and everything still open makes up the next pass's open list,
+			// keyed with the new weight. The open list is rebuilt rather than re-keyed in place
+			// as every key changes.
+			for (int i = 0; i < open.size(); i++) {
+				push(open.get(i));
+			}
+
+			open.clear();
+
+			int sizeIncons = numIncons;
+			numIncons = 0;
+
+			for (int i = 0; i < sizeIncons; i++) {
+				int id = incons[i];
+				open.add(id, (float) (ws.getG(id) + weight * ws.getH(id)));
+			}
+
+			ws.reopenAll();
+			metrics.open(open.size());
+
+			if (!improvePath(ws, goal, target, weight, deadline, metrics)) {
+				break;
+			}
+
+			path = ws.backtrace(target);
+			bound = Math.min(weight, proveBound(ws, target));
+		}
+
+		return new SearchResult(path, cost, bound);
+	}
+
+	/**
+	 * Expands cells until the goal's cost is no larger than the smallest key on the open list.
+	 * 
+	 * @return False if the deadline passed before the pass finished
+	 */
+	private boolean improvePath(SearchWorkspace ws, Point goal, int target, double weight, long deadline, SearchMetrics metrics)
+	{
+		IndexedHeap open = ws.getOpen();
+
+		while (!open.isEmpty()) {
+			if (ws.isSeen(target) && ws.getG(target) <= open.peekKey()) {
+				break;
+			}
+
+			if ((cost & CLOCK_MASK) == 0 && System.nanoTime() >= deadline) {
+				return false;
+			}
+
+			cost++;
+			int current = open.poll();
+			ws.close(current);
+
+			int x = w.getCellX(current);
+			int y = w.getCellY(current);
+			metrics.expanded(x, y);
+
+			for (int k = 0; k < 8; k++) {
+				if (!canMove(x, y, DX[k], DY[k])) {
+					continue;
+				}
+
+				int successor = w.getCellId(x + DX[k], y + DY[k]);
+				float cand = ws.getG(current) + moveCost(DX[k], DY[k]);
+
+				if (!ws.isSeen(successor)) {
+					ws.see(successor, cand, (float) h.heuristic(ws.getProbe(successor), goal), current);
+					metrics.heuristic();
+				} else if (cand < ws.getG(successor)) {
+					ws.relax(successor, cand, current);
+				} else {
+					metrics.duplicate();
+					continue;
+				}
+
+				metrics.generated(x + DX[k], y + DY[k]);
+
+				if (ws.isClosed(successor)) {
+					push(successor);
+				} else {
+					open.add(successor, (float) (cand + weight * ws.getH(successor)));
+					metrics.open(open.size());
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the ratio between the goal's cost and a lower bound on the cost of an optimal path.
+	 * Every path to the goal that is cheaper than the one found leaves the settled cells through a
+	 * cell that is open or set aside, so the smallest unweighted f value among those is such a
+	 * lower bound.
+	 */
+	private double proveBound(SearchWorkspace ws, int target)
+	{
+		IndexedHeap open = ws.getOpen();
+		float min = Float.POSITIVE_INFINITY;
+
+		for (int i = 0; i < open.size(); i++) {
+			int id = open.get(i);
+			min = Math.min(min, ws.getG(id) + ws.getH(id));
+		}
+
+		for (int i = 0; i < numIncons; i++) {
+			int id = incons[i];
+			min = Math.min(min, ws.getG(id) + ws.getH(id));
+		}
+
+		float g = ws.getG(target);
+		return g <= min ? 1 : g / min;
+	}
+
+	/**
+	 * Sets a cell aside for the next pass. A cell may be set aside more than once.
+	 */
+	private void push(int id)
+	{
+		if (numIncons == incons.length) {
+			int[] grown = new int[incons.length * 2];
+			System.arraycopy(incons, 0, grown, 0, numIncons);
+			incons = grown;
+		}
+
+		incons[numIncons++] = id;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ARA*";
+	}
+}
@@ -0,0 +1,281 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.heuristic.Heuristic;
+import edu.uwm.ai.search.util.BitGrid;
+import edu.uwm.ai.search.util.IndexedHeap;
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * The search shared by the jump point searches that keep their bookkeeping in the calling thread's
+ * {@link SearchWorkspace}: A* over jump points, pruning the neighbours of each jump point by the
+ * direction it was reached from, and filling in the straight lines between jump points once the
+ * goal is reached. Subclasses only decide how a jump is made.
+ * 
+ * A jump point reached at the same cost from more than one direction remembers all of them, and is
+ * expanded as if it had been reached from each, since the pruning rules of one direction can drop
+ * moves that a shortest path through another one needs.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public abstract class BaseJumpPointSearch extends BaseSearchAlgorithm
+{
+	protected final World w;
+	protected final Heuristic h;
+	protected final BitGrid grid;
+
+	public BaseJumpPointSearch(World w, Heuristic h)
+	{
+		super(w);
+
+		this.w = w;
+		this.h = h;
+		this.grid = w.getGrid();
+	}
+
+	@Override
+	protected SearchResult doSearch(Point initial, Point goal, SearchMetrics metrics)
+	{
+		if (!w.isValidPosition(initial) || !w.isValidPosition(goal)) {
+			return new SearchResult(new ArrayList<Point>(), 0);
+		}
+
+		SearchWorkspace ws = SearchWorkspace.get(w);
+		IndexedHeap open = ws.getOpen();
+		ws.reset();
+
+		int start = w.getCellId(initial.getX(), initial.getY());
+		int target = w.getCellId(goal.getX(), goal.getY());
+
+		ws.see(start, 0, (float) h.heuristic(initial, goal), -1);
+		ws.setDirections(start, 0);
+		open.add(start, ws.getH(start));
+		metrics.heuristic();
+		metrics.open(open.size());
+
+		int cost = 0;
+		while (!open.isEmpty()) {
+			cost++;
+			int current = open.poll();
+			ws.close(current);
+
+			int x = w.getCellX(current);
+			int y = w.getCellY(current);
+			metrics.expanded(x, y);
+
+			if (current == target) {
+				return new SearchResult(fill(ws, current), cost);
+			}
+			int directions = ws.getDirections(current);
+
+			if (directions == 0) {
+				for (int k = 0; k < 8; k++) {
+					if (canMove(x, y, DX[k], DY[k])) {
+						expand(ws, current, x, y, DX[k], DY[k], goal, metrics);
+					}
+				}
+
+				continue;
+			}
+
+			// A jump point reached at the same cost from several directions continues in each of
+			// them, since the pruning rules of one direction can drop moves another one needs.
+			for (int k = 0; k < 8; k++) {
+				if ((directions & 1 << k) != 0) {
+					expandFrom(ws, current, x, y, DX[k], DY[k], goal, metrics);
+				}
+			}
+		}
+
+		return new SearchResult(new ArrayList<Point>(), cost);
+	}
+
+	/**
+	 * Expands the natural and forced neighbours of a jump point reached by moving in the direction
+	 * (dx, dy).
+	 */
+	private void expandFrom(SearchWorkspace ws, int current, int x, int y, int dx, int dy, Point goal, SearchMetrics metrics)
+	{
+		if (dx != 0 && dy != 0) {
+			// Moving diagonally, the two straight moves and the diagonal move are natural, and
+			// the diagonals behind a wall on either side are forced.
+			tryExpand(ws, current, x, y, dx, 0, goal, metrics);
+			tryExpand(ws, current, x, y, 0, dy, goal, metrics);
+			tryExpand(ws, current, x, y, dx, dy, goal, metrics);
+
+			if (grid.isBlocked(x - dx, y)) {
+				tryExpand(ws, current, x, y, -dx, dy, goal, metrics);
+			}
+
+			if (grid.isBlocked(x, y - dy)) {
+				tryExpand(ws, current, x, y, dx, -dy, goal, metrics);
+			}
+		} else if (dx != 0) {
+			tryExpand(ws, current, x, y, dx, 0, goal, metrics);
+
+			if (grid.isBlocked(x, y + 1)) {
+				tryExpand(ws, current, x, y, dx, 1, goal, metrics);
+			}
+
+			if (grid.isBlocked(x, y - 1)) {
+				tryExpand(ws, current, x, y, dx, -1, goal, metrics);
+			}
+		} else {
+			tryExpand(ws, current, x, y, 0, dy, goal, metrics);
+
+			if (grid.isBlocked(x + 1, y)) {
+				tryExpand(ws, current, x, y, 1, dy, goal, metrics);
+			}
+
+			if (grid.isBlocked(x - 1, y)) {
+				tryExpand(ws, current, x, y, -1, dy, goal, metrics);
+			}
+		}
+	}
+
+	private void tryExpand(SearchWorkspace ws, int current, int x, int y, int dx, int dy, Point goal, SearchMetrics metrics)
+	{
+		if (canMove(x, y, dx, dy)) {
+			expand(ws, current, x, y, dx, dy, goal, metrics);
+		}
+	}
+
+	/**
+	 * Jumps from a cell, which the move (dx, dy) leaves, in the direction of that move.
+	 * 
+	 * @param current
+	 *            The id of the cell to jump from
+	 * @param x
+	 *            The column of the cell
+	 * @param y
+	 *            The row of the cell
+	 * @param dx
+	 *            The column offset of the direction
+	 * @param dy
+	 *            The row offset of the direction
+	 * @param goal
+	 *            The goal of the search, which a jump must not pass
+	 * @return The id of the first jump point or of the goal along the direction, or -1 if a wall is
+	 *         reached first.
+	 */
+	protected abstract int jump(int current, int x, int y, int dx, int dy, Point goal);
+
+	/**
+	 * Jumps from a cell in the given direction and, if a jump point is found, adds it to the open
+	 * list, lowers its cost, or adds the direction to those it was reached from at its cost.
+	 */
+	private void expand(SearchWorkspace ws, int current, int x, int y, int dx, int dy, Point goal, SearchMetrics metrics)
+	{
+		int jump = jump(current, x, y, dx, dy, goal);
+
+		if (jump < 0) {
+			return;
+		}
+
+		int steps = Math.max(Math.abs(w.getCellX(jump) - x), Math.abs(w.getCellY(jump) - y));
+		float cand = ws.getG(current) + steps * moveCost(dx, dy);
+		int direction = 1 << moveIndex(dx, dy);
+
+		if (!ws.isSeen(jump)) {
+			ws.see(jump, cand, (float) h.heuristic(ws.getProbe(jump), goal), current);
+			ws.setDirections(jump, direction);
+			metrics.heuristic();
+		} else if (isSameCost(cand, ws.getG(jump))) {
+			int directions = ws.getDirections(jump);
+
+			if ((directions & direction) != 0) {
+				metrics.duplicate();
+				return;
+			}
+
+			if (!ws.isClosed(jump)) {
+				// Still open, so it will be expanded in the new direction as well.
+				ws.setDirections(jump, directions | direction);
+				return;
+			}
+
+			// Already expanded from the other directions, so expand it again. The moves of the old
+			// directions come up again, but only as duplicates.
+			ws.setDirections(jump, directions | direction);
+			ws.reopen(jump);
+		} else if (cand < ws.getG(jump) && !ws.isClosed(jump)) {
+			ws.relax(jump, cand, current);
+			ws.setDirections(jump, direction);
+		} else {
+			metrics.duplicate();
+			return;
+		}
+
+		ws.getOpen().add(jump, cand + ws.getH(jump));
+		metrics.generated(w.getCellX(jump), w.getCellY(jump));
+		metrics.open(ws.getOpen().size());
+	}
+
+	/**
+	 * Builds the full path of cells to the given jump point by walking the straight lines between
+	 * it and each of its predecessors.
+	 */
+	private List<Point> fill(SearchWorkspace ws, int id)
+	{
+		int length = 1;
+		for (int p = id; ws.getParent(p) != -1; p = ws.getParent(p)) {
+			int q = ws.getParent(p);
+			length += Math.max(Math.abs(w.getCellX(p) - w.getCellX(q)), Math.abs(w.getCellY(p) - w.getCellY(q)));
+		}
+
+		List<Point> path = new ArrayList<Point>(length);
+
+		int p = id;
+		int q = ws.getParent(p);
+
+		while (q != -1) {
+			int qx = w.getCellX(q);
+			int qy = w.getCellY(q);
+			int x = w.getCellX(p);
+			int y = w.getCellY(p);
+			int dx = Integer.signum(qx - x);
+			int dy = Integer.signum(qy - y);
+
+			while (x != qx || y != qy) {
+				path.add(new Point(x, y));
+				x += dx;
+				y += dy;
+			}
+
+			p = q;
+			q = ws.getParent(p);
+		}
+
+		path.add(new Point(w.getCellX(p), w.getCellY(p)));
+
+		Collections.reverse(path);
+		return path;
+	}
+}
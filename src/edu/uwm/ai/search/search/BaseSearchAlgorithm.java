@@ -23,11 +23,14 @@
 package edu.uwm.ai.search.search;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
 import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.util.BitGrid;
+import edu.uwm.ai.search.util.IndexedHeap;
 import edu.uwm.ai.search.util.Node;
 import edu.uwm.ai.search.util.Point;
 
@@ -39,13 +42,195 @@ abstract public class BaseSearchAlgorithm implements SearchAlgorithm
 {
 	public static double diagCost = 2;
 
+	/**
+	 * The column and row offsets of the eight moves, orthogonal moves first. Engines that work on
+	 * cell ids walk these instead of allocating successor nodes.
+	 */
+	static final int[] DX = { 0, 0, -1, 1, 1, 1, -1, -1 };
+	static final int[] DY = { -1, 1, 0, 0, 1, -1, 1, -1 };
+
 	private World w;
+	private SearchListener listener;
 
 	public BaseSearchAlgorithm(World w)
 	{
 		this.w = w;
 	}
 
+	/**
+	 * Runs {@link #doSearch(Point, Point, SearchMetrics)} and attaches to the result what the search
+	 * did, including the time it took and the memory it allocated. If the start and the goal are
+	 * free but in different regions of the world, the empty path is returned without searching,
+	 * since most algorithms only find out that there is no path by exhausting the region of the
+	 * start, some of them many times over.
+	 */
+	@Override
+	public final SearchResult search(Point initial, Point goal)
+	{
+		SearchMetrics metrics = newMetrics();
+		metrics.start();
+
+		if (isUnreachable(initial, goal)) {
+			return metrics.finish(new SearchResult(new ArrayList<Point>(), 0));
+		}
+
+		return metrics.finish(doSearch(initial, goal, metrics));
+	}
+
+	/**
+	 * Determines whether both points are free and no path leads from one to the other.
+	 */
+	boolean isUnreachable(Point initial, Point goal)
+	{
+		return w.isValidPosition(initial) && w.isValidPosition(goal) && !w.isReachable(initial, goal);
+	}
+
+	/**
+	 * Finds a path from the initial point to the goal, counting what it does in the given metrics.
+	 * 
+	 * @param initial
+	 *            The start point
+	 * @param goal
+	 *            The goal point
+	 * @param metrics
+	 *            The counters of this search, which also pass events on to the listener
+	 * @return The path found, starting with the initial point, or an empty path if there is none.
+	 */
+	protected abstract SearchResult doSearch(Point initial, Point goal, SearchMetrics metrics);
+
+	/**
+	 * Sets the listener told about every node this algorithm expands or generates, or null for
+	 * none. The listener should be set before searching starts.
+	 */
+	public void setSearchListener(SearchListener listener)
+	{
+		this.listener = listener;
+	}
+
+	public SearchListener getSearchListener()
+	{
+		return listener;
+	}
+
+	SearchMetrics newMetrics()
+	{
+		return new SearchMetrics(listener);
+	}
+
+	/**
+	 * Finds paths from several points to one goal with a single uniform-cost search rooted at the
+	 * goal. Every move can be made in either direction at the same cost, so the search tree grown
+	 * from the goal holds a shortest path from each start, read by following parents from the
+	 * start. The search stops as soon as every start has been settled. Starts that the goal cannot
+	 * be reached from are left out, so that they do not make it exhaust the region of the goal.
+	 * 
+	 * The cost of each result is the number of nodes the shared search had expanded when that start
+	 * was settled. Every result carries the metrics of the whole shared search.
+	 */
+	@Override
+	public List<SearchResult> searchMany(List<Point> starts, Point goal)
+	{
+		List<SearchResult> results = new ArrayList<SearchResult>(starts.size());
+
+		int[] pending = new int[starts.size()];
+		int numPending = 0;
+
+		if (w.isValidPosition(goal)) {
+			for (Point p : starts) {
+				if (w.isReachable(p, goal)) {
+					pending[numPending++] = w.getCellId(p.getX(), p.getY());
+				}
+			}
+		}
+
+		Arrays.sort(pending, 0, numPending);
+
+		int unique = 0;
+		for (int i = 0; i < numPending; i++) {
+			if (unique == 0 || pending[unique - 1] != pending[i]) {
+				pending[unique++] = pending[i];
+			}
+		}
+
+		SearchMetrics metrics = newMetrics();
+		metrics.start();
+
+		int[] settled = new int[unique];
+		SearchWorkspace ws = SearchWorkspace.get(w);
+		IndexedHeap open = ws.getOpen();
+		ws.reset();
+
+		int cost = 0;
+		if (unique > 0) {
+			int root = w.getCellId(goal.getX(), goal.getY());
+			ws.see(root, 0, 0, -1);
+			open.add(root, 0);
+			metrics.open(1);
+		}
+
+		int remaining = unique;
+		while (remaining > 0 && !open.isEmpty()) {
+			cost++;
+			int current = open.poll();
+			ws.close(current);
+
+			int i = Arrays.binarySearch(pending, 0, unique, current);
+			if (i >= 0) {
+				settled[i] = cost;
+				remaining--;
+			}
+
+			int x = w.getCellX(current);
+			int y = w.getCellY(current);
+			metrics.expanded(x, y);
+
+			for (int k = 0; k < 8; k++) {
+				if (!canMove(x, y, DX[k], DY[k])) {
+					continue;
+				}
+
+				int successor = w.getCellId(x + DX[k], y + DY[k]);
+
+				if (ws.isClosed(successor)) {
+					metrics.duplicate();
+					continue;
+				}
+
+				float cand = ws.getG(current) + moveCost(DX[k], DY[k]);
+
+				if (!ws.isSeen(successor)) {
+					ws.see(successor, cand, 0, current);
+				} else if (cand < ws.getG(successor)) {
+					ws.relax(successor, cand, current);
+				} else {
+					metrics.duplicate();
+					continue;
+				}
+
+				open.add(successor, cand);
+				metrics.generated(x + DX[k], y + DY[k]);
+				metrics.open(open.size());
+			}
+		}
+
+		for (Point p : starts) {
+			int i = w.isValidPosition(p) ? Arrays.binarySearch(pending, 0, unique, w.getCellId(p.getX(), p.getY())) : -1;
+
+			if (i >= 0 && ws.isClosed(pending[i])) {
+				results.add(new SearchResult(ws.trace(pending[i]), settled[i]));
+			} else {
+				results.add(new SearchResult(new ArrayList<Point>(), cost));
+			}
+		}
+
+		metrics.stop();
+		for (SearchResult result : results) {
+			result.setMetrics(metrics);
+		}
+
+		return results;
+	}
+
 	List<Point> backtrace(Map<Point, Point> predecessors, Point p)
 	{
 		List<Point> path = new LinkedList<Point>();
@@ -73,6 +258,59 @@ abstract public class BaseSearchAlgorithm implements SearchAlgorithm
 		return pruneInvalid(successors, p);
 	}
 
+	/**
+	 * Determines whether a single move from a cell inside of the world is allowed, using the same rules as
+	 * {@link World#isAccessableThrough(Point, Point)} without allocating any points.
+	 * 
+	 * @param x
+	 *            The column of the cell being moved from
+	 * @param y
+	 *            The row of the cell being moved from
+	 * @param dx
+	 *            The column offset of the move, between -1 and 1
+	 * @param dy
+	 *            The row offset of the move, between -1 and 1
+	 * @return True if the destination is free and, for diagonal moves, at least one of the two cells
+	 *         beside the move is free.
+	 */
+	boolean canMove(int x, int y, int dx, int dy)
+	{
+		BitGrid grid = w.getGrid();
+
+		if (grid.isBlocked(x + dx, y + dy)) {
+			return false;
+		}
+
+		return dx == 0 || dy == 0 || !grid.isBlocked(x + dx, y) || !grid.isBlocked(x, y + dy);
+	}
+
+	/**
+	 * Returns the position in {@link #DX} and {@link #DY} of the move with the given offsets.
+	 */
+	static int moveIndex(int dx, int dy)
+	{
+		return MOVES[(dy + 1) * 3 + dx + 1];
+	}
+
+	private static final int[] MOVES = { 7, 0, 5, 2, -1, 3, 6, 1, 4 };
+
+	/**
+	 * Determines whether two path costs are equal up to the rounding of summing moves as floats in
+	 * different orders.
+	 */
+	static boolean isSameCost(float a, float b)
+	{
+		return Math.abs(a - b) <= 1e-5f * Math.max(1, Math.abs(b));
+	}
+
+	/**
+	 * Returns the cost of a single move with the given offsets.
+	 */
+	static float moveCost(int dx, int dy)
+	{
+		return dx != 0 && dy != 0 ? (float) diagCost : 1;
+	}
+
 	List<Node> pruneInvalid(List<Node> nodes, Point p)
 	{
 		List<Node> newNodes = new ArrayList<Node>();
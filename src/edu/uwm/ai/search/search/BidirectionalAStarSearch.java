@@ -0,0 +1,166 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.heuristic.Heuristic;
+import edu.uwm.ai.search.util.IndexedHeap;
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * Runs one A* search forwards from the start and one backwards from the goal, each estimating the
+ * distance to the far end, and expands whichever has the smaller open list. Every time a search
+ * reaches a cell the other has seen, the two costs make a path; the cheapest such path is kept.
+ * 
+ * A path through any cell still open on one side costs at least that side's smallest f value, so
+ * once the best path found costs no more than the larger of the two, it is optimal. The heuristic
+ * must be admissible in both directions.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class BidirectionalAStarSearch extends BaseSearchAlgorithm
+{
+	private World w;
+	private Heuristic h;
+
+	private float best;
+	private int meet;
+
+	public BidirectionalAStarSearch(World w, Heuristic h)
+	{
+		super(w);
+
+		this.w = w;
+		this.h = h;
+	}
+
+	@Override
+	protected SearchResult doSearch(Point initial, Point goal, SearchMetrics metrics)
+	{
+		if (!w.isValidPosition(initial) || !w.isValidPosition(goal)) {
+			return new SearchResult(new ArrayList<Point>(), 0);
+		}
+
+		SearchWorkspace fws = SearchWorkspace.get(w);
+		SearchWorkspace bws = fws.getPartner();
+		fws.reset();
+		bws.reset();
+
+		int start = w.getCellId(initial.getX(), initial.getY());
+		int target = w.getCellId(goal.getX(), goal.getY());
+
+		fws.see(start, 0, (float) h.heuristic(initial, goal), -1);
+		fws.getOpen().add(start, fws.getH(start));
+		bws.see(target, 0, (float) h.heuristic(goal, initial), -1);
+		bws.getOpen().add(target, bws.getH(target));
+		metrics.heuristic();
+		metrics.heuristic();
+		metrics.open(2);
+
+		best = start == target ? 0 : Float.POSITIVE_INFINITY;
+		meet = start == target ? start : -1;
+
+		int cost = 0;
+		while (!fws.getOpen().isEmpty() && !bws.getOpen().isEmpty()) {
+			if (best <= Math.max(fws.getOpen().peekKey(), bws.getOpen().peekKey())) {
+				break;
+			}
+
+			cost++;
+
+			if (fws.getOpen().size() <= bws.getOpen().size()) {
+				expand(fws, bws, goal, metrics);
+			} else {
+				expand(bws, fws, initial, metrics);
+			}
+		}
+
+		if (meet == -1) {
+			return new SearchResult(new ArrayList<Point>(), cost);
+		}
+
+		List<Point> path = fws.backtrace(meet);
+		List<Point> rest = bws.trace(meet);
+		path.addAll(rest.subList(1, rest.size()));
+
+		return new SearchResult(path, cost);
+	}
+
+	/**
+	 * Expands the best open cell of one side of the search, towards the given end.
+	 */
+	private void expand(SearchWorkspace ws, SearchWorkspace other, Point end, SearchMetrics metrics)
+	{
+		IndexedHeap open = ws.getOpen();
+		int current = open.poll();
+		ws.close(current);
+
+		int x = w.getCellX(current);
+		int y = w.getCellY(current);
+		metrics.expanded(x, y);
+
+		for (int k = 0; k < 8; k++) {
+			if (!canMove(x, y, DX[k], DY[k])) {
+				continue;
+			}
+
+			int successor = w.getCellId(x + DX[k], y + DY[k]);
+
+			if (ws.isClosed(successor)) {
+				metrics.duplicate();
+				continue;
+			}
+
+			float cand = ws.getG(current) + moveCost(DX[k], DY[k]);
+
+			if (!ws.isSeen(successor)) {
+				ws.see(successor, cand, (float) h.heuristic(ws.getProbe(successor), end), current);
+				metrics.heuristic();
+			} else if (cand < ws.getG(successor)) {
+				ws.relax(successor, cand, current);
+			} else {
+				metrics.duplicate();
+				continue;
+			}
+
+			open.add(successor, cand + ws.getH(successor));
+			metrics.generated(x + DX[k], y + DY[k]);
+			metrics.open(open.size() + other.getOpen().size());
+
+			if (other.isSeen(successor) && cand + other.getG(successor) < best) {
+				best = cand + other.getG(successor);
+				meet = successor;
+			}
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return "BA*";
+	}
+}
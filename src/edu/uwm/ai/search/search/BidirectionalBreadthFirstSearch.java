@@ -0,0 +1,149 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * A breadth first search grown a whole layer at a time from both the start and the goal, always
+ * on the side with the smaller frontier. Like {@link BreadthFirstSearch} it finds a path with the
+ * fewest moves, whatever they cost.
+ * 
+ * Before a layer is expanded, each side has seen every cell within its depth and the two sides
+ * share no cell, so no path is shorter than the two depths plus one. The first cell seen by both
+ * sides makes a path of exactly that length, so the search stops there.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class BidirectionalBreadthFirstSearch extends BaseSearchAlgorithm
+{
+	private World w;
+
+	public BidirectionalBreadthFirstSearch(World w)
+	{
+		super(w);
+
+		this.w = w;
+	}
+
+	@Override
+	protected SearchResult doSearch(Point initial, Point goal, SearchMetrics metrics)
+	{
+		if (!w.isValidPosition(initial) || !w.isValidPosition(goal)) {
+			return new SearchResult(new ArrayList<Point>(), 0);
+		}
+
+		SearchWorkspace fws = SearchWorkspace.get(w);
+		SearchWorkspace bws = fws.getPartner();
+		fws.reset();
+		bws.reset();
+
+		int start = w.getCellId(initial.getX(), initial.getY());
+		int target = w.getCellId(goal.getX(), goal.getY());
+
+		int[] fq = fws.getQueue();
+		int[] bq = bws.getQueue();
+		int fHead = 0, fTail = 0;
+		int bHead = 0, bTail = 0;
+
+		fws.see(start, 0, 0, -1);
+		fq[fTail++] = start;
+		bws.see(target, 0, 0, -1);
+		bq[bTail++] = target;
+		metrics.open(2);
+
+		int meet = start == target ? start : -1;
+		int cost = 0;
+
+		while (meet == -1 && fHead < fTail && bHead < bTail) {
+			boolean forward = fTail - fHead <= bTail - bHead;
+			SearchWorkspace ws = forward ? fws : bws;
+			SearchWorkspace other = forward ? bws : fws;
+			int[] queue = forward ? fq : bq;
+			int head = forward ? fHead : bHead;
+			int tail = forward ? fTail : bTail;
+			int layerEnd = tail;
+			int waiting = forward ? bTail - bHead : fTail - fHead;
+
+			while (meet == -1 && head < layerEnd) {
+				cost++;
+				int current = queue[head++];
+				int x = w.getCellX(current);
+				int y = w.getCellY(current);
+				metrics.expanded(x, y);
+
+				for (int k = 0; k < 8; k++) {
+					if (!canMove(x, y, DX[k], DY[k])) {
+						continue;
+					}
+
+					int successor = w.getCellId(x + DX[k], y + DY[k]);
+
+					if (ws.isSeen(successor)) {
+						metrics.duplicate();
+						continue;
+					}
+
+					ws.see(successor, ws.getG(current) + 1, 0, current);
+					queue[tail++] = successor;
+					metrics.generated(x + DX[k], y + DY[k]);
+					metrics.open(tail - head + waiting);
+
+					if (other.isSeen(successor)) {
+						meet = successor;
+						break;
+					}
+				}
+			}
+
+			if (forward) {
+				fHead = head;
+				fTail = tail;
+			} else {
+				bHead = head;
+				bTail = tail;
+			}
+		}
+
+		if (meet == -1) {
+			return new SearchResult(new ArrayList<Point>(), cost);
+		}
+
+		List<Point> path = fws.backtrace(meet);
+		List<Point> rest = bws.trace(meet);
+		path.addAll(rest.subList(1, rest.size()));
+
+		return new SearchResult(path, cost);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "BBFS";
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.search;
+
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.heuristic.Heuristic;
+import edu.uwm.ai.search.util.BitGrid;
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * A jump point search that scans straight lines 64 cells at a time. Horizontal jumps read whole
+ * words from the world's {@link BitGrid} and find the first wall or forced neighbour with a
+ * trailing-zero count; vertical jumps do the same on the grid's transposed copy. Diagonal jumps step
+ * one cell at a time in a loop, launching a straight scan in each of their two component directions
+ * from every cell.
+ * 
+ * This follows the same movement and forced neighbour rules as {@link JumpPointSearch}, but never
+ * recurses and keeps its bookkeeping in the calling thread's {@link SearchWorkspace}; the search
+ * itself is that of {@link BaseJumpPointSearch}.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class BitJumpPointSearch extends BaseJumpPointSearch
+{
+	public BitJumpPointSearch(World w, Heuristic h)
+	{
+		super(w, h);
+	}
+
+	@Override
+	protected int jump(int current, int x, int y, int dx, int dy, Point goal)
+	{
+		int gx = goal.getX();
+		int gy = goal.getY();
+
+		if (dx != 0 && dy != 0) {
+			return jumpDiagonal(x, y, dx, dy, gx, gy);
+		} else if (dx != 0) {
+			return jumpHorizontal(x, y, dx, gx, gy);
+		} else {
+			return jumpVertical(x, y, dy, gx, gy);
+		}
+	}
+
+	/**
+	 * Scans a row from the cell beside (x, y) in the direction dx, 64 cells at a time.
+	 * 
+	 * @return The id of the first jump point or of the goal, or -1 if a wall is reached first.
+	 */
+	int jumpHorizontal(int x, int y, int dx, int gx, int gy)
+	{
+		int c = x + dx;
+
+		for (;;) {
+			long blocked, above, aboveNext, below, belowNext;
+
+			if (dx > 0) {
+				blocked = grid.getRowWord(c, y);
+				above = grid.getRowWord(c, y - 1);
+				aboveNext = grid.getRowWord(c + 1, y - 1);
+				below = grid.getRowWord(c, y + 1);
+				belowNext = grid.getRowWord(c + 1, y + 1);
+			} else {
+				blocked = grid.getReversedRowWord(c, y);
+				above = grid.getReversedRowWord(c, y - 1);
+				aboveNext = grid.getReversedRowWord(c - 1, y - 1);
+				below = grid.getReversedRowWord(c, y + 1);
+				belowNext = grid.getReversedRowWord(c - 1, y + 1);
+			}
+
+			// A neighbour is forced where a wall beside the row ends.
+			int stop = Long.numberOfTrailingZeros(blocked);
+			int forced = Long.numberOfTrailingZeros((above & ~aboveNext) | (below & ~belowNext));
+
+			if (gy == y) {
+				int k = (gx - c) * dx;
+
+				if (k >= 0 && k < stop && k <= forced) {
+					return w.getCellId(gx, gy);
+				}
+			}
+
+			if (forced < stop) {
+				return w.getCellId(c + forced * dx, y);
+			}
+
+			if (stop < 64) {
+				return -1;
+			}
+
+			c += 64 * dx;
+		}
+	}
+
+	/**
+	 * Scans a column from the cell beside (x, y) in the direction dy, 64 cells at a time.
+	 * 
+	 * @return The id of the first jump point or of the goal, or -1 if a wall is reached first.
+	 */
+	int jumpVertical(int x, int y, int dy, int gx, int gy)
+	{
+		int c = y + dy;
+
+		for (;;) {
+			long blocked, left, leftNext, right, rightNext;
+
+			if (dy > 0) {
+				blocked = grid.getColumnWord(x, c);
+				left = grid.getColumnWord(x - 1, c);
+				leftNext = grid.getColumnWord(x - 1, c + 1);
+				right = grid.getColumnWord(x + 1, c);
+				rightNext = grid.getColumnWord(x + 1, c + 1);
+			} else {
+				blocked = grid.getReversedColumnWord(x, c);
+				left = grid.getReversedColumnWord(x - 1, c);
+				leftNext = grid.getReversedColumnWord(x - 1, c - 1);
+				right = grid.getReversedColumnWord(x + 1, c);
+				rightNext = grid.getReversedColumnWord(x + 1, c - 1);
+			}
+
+			int stop = Long.numberOfTrailingZeros(blocked);
+			int forced = Long.numberOfTrailingZeros((left & ~leftNext) | (right & ~rightNext));
+
+			if (gx == x) {
+				int k = (gy - c) * dy;
+
+				if (k >= 0 && k < stop && k <= forced) {
+					return w.getCellId(gx, gy);
+				}
+			}
+
+			if (forced < stop) {
+				return w.getCellId(x, c + forced * dy);
+			}
+
+			if (stop < 64) {
+				return -1;
+			}
+
+			c += 64 * dy;
+		}
+	}
+
+	/**
+	 * Steps diagonally from (x, y) until reaching the goal, a cell with a forced neighbour, or a
+	 * cell from which either straight scan finds a jump point.
+	 * 
+	 * @return The id of the jump point, or -1 if the diagonal is blocked first.
+	 */
+	int jumpDiagonal(int x, int y, int dx, int dy, int gx, int gy)
+	{
+		for (;;) {
+			if (!canMove(x, y, dx, dy)) {
+				return -1;
+			}
+
+			x += dx;
+			y += dy;
+
+			if (x == gx && y == gy) {
+				return w.getCellId(x, y);
+			}
+
+			if ((!grid.isBlocked(x - dx, y + dy) && grid.isBlocked(x - dx, y)) || (!grid.isBlocked(x + dx, y - dy) && grid.isBlocked(x, y - dy))) {
+				return w.getCellId(x, y);
+			}
+
+			if (jumpHorizontal(x, y, dx, gx, gy) >= 0 || jumpVertical(x, y, dy, gx, gy) >= 0) {
+				return w.getCellId(x, y);
+			}
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return "BJPS";
+	}
+}
@@ -42,7 +42,7 @@ public class BreadthFirstSearch extends BaseSearchAlgorithm
 	}
 
 	@Override
-	public SearchResult search(Point initial, final Point goal)
+	protected SearchResult doSearch(Point initial, final Point goal, SearchMetrics metrics)
 	{
 		Map<Point, Point> pred = new HashMap<Point, Point>();
 		List<Point> successors = new ArrayList<Point>();
@@ -58,15 +58,21 @@ public class BreadthFirstSearch extends BaseSearchAlgorithm
 
 			successors.add(initial);
 			pred.put(initial, null);
+			metrics.open(successors.size());
 
 			while (!successors.isEmpty()) {
 				cost++;
 				Point current = successors.remove(0);
+				metrics.expanded(current.getX(), current.getY());
 
 				for (Point successor : getSuccessors(current)) {
 					if (!hasKey(pred, successor)) {
 						pred.put(successor, current);
 						successors.add(successor);
+						metrics.generated(successor.getX(), successor.getY());
+						metrics.open(successors.size());
+					} else {
+						metrics.duplicate();
 					}
 
 					if (successor.equals(goal)) {
@@ -0,0 +1,336 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * Wraps another search algorithm and remembers the paths it finds. A cached path from a start to a
+ * goal also answers a query from any cell on that path to the same goal, since every part of a
+ * shortest path is itself a shortest path. The least recently used paths are dropped once the cache
+ * is full, and the whole cache is dropped when the world's version changes.
+ * 
+ * Paths are copied in and out of the cache, so callers are free to consume them. One cache can be
+ * shared by several entities as long as the wrapped algorithm is safe to call from each of them.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class CachingSearch implements SearchAlgorithm
+{
+	private final World w;
+	private final SearchAlgorithm algorithm;
+	private final int capacity;
+
+	/**
+	 * Cached paths by start and goal, in order of use.
+	 */
+	private final LinkedHashMap<Long, CachedPath> entries;
+
+	/**
+	 * Cached paths by goal and any cell along them.
+	 */
+	private final Map<Long, CachedPath> cells = new HashMap<Long, CachedPath>();
+
+	private int version;
+	private long hits;
+	private long misses;
+
+	/**
+	 * @param w
+	 *            The world the wrapped algorithm searches
+	 * @param algorithm
+	 *            The algorithm to answer cache misses with
+	 * @param capacity
+	 *            The greatest number of paths to keep
+	 */
+	public CachingSearch(World w, SearchAlgorithm algorithm, final int capacity)
+	{
+		this.w = w;
+		this.algorithm = algorithm;
+		this.capacity = capacity;
+		this.version = w.getVersion();
+
+		this.entries = new LinkedHashMap<Long, CachedPath>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, CachedPath> eldest)
+			{
+				if (size() <= capacity) {
+					return false;
+				}
+
+				unindex(eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+	public synchronized long getHits()
+	{
+		return hits;
+	}
+
+	public synchronized long getMisses()
+	{
+		return misses;
+	}
+
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	public synchronized void clear()
+	{
+		entries.clear();
+		cells.clear();
+	}
+
+	@Override
+	public SearchResult search(Point initial, Point goal)
+	{
+		if (!w.isValidPosition(initial) || !w.isValidPosition(goal)) {
+			return algorithm.search(initial, goal);
+		}
+
+		// A hit expands nothing, so its metrics only hold the time and memory the lookup took.
+		SearchMetrics metrics = new SearchMetrics((SearchListener) null);
+		metrics.start();
+
+		List<Point> cached = lookup(initial, goal);
+
+		if (cached != null) {
+			return metrics.finish(new SearchResult(cached, 0));
+		}
+
+		int v = w.getVersion();
+		SearchResult result = algorithm.search(initial, goal);
+		List<Point> path = drain(result.getPath());
+		store(v, initial, goal, path);
+
+		return copy(result, path);
+	}
+
+	@Override
+	public List<SearchResult> searchMany(List<Point> starts, Point goal)
+	{
+		List<SearchResult> results = new ArrayList<SearchResult>(starts.size());
+		List<Point> missed = new ArrayList<Point>();
+		List<Integer> missedAt = new ArrayList<Integer>();
+
+		for (Point p : starts) {
+			List<Point> cached = w.isValidPosition(p) && w.isValidPosition(goal) ? lookup(p, goal) : null;
+
+			if (cached == null) {
+				missed.add(p);
+				missedAt.add(results.size());
+			}
+
+			results.add(cached == null ? null : new SearchResult(cached, 0));
+		}
+
+		if (!missed.isEmpty()) {
+			int v = w.getVersion();
+			List<SearchResult> found = algorithm.searchMany(missed, goal);
+
+			for (int i = 0; i < missed.size(); i++) {
+				List<Point> path = drain(found.get(i).getPath());
+
+				if (w.isValidPosition(missed.get(i)) && w.isValidPosition(goal)) {
+					store(v, missed.get(i), goal, path);
+				}
+
+				results.set(missedAt.get(i), copy(found.get(i), path));
+			}
+		}
+
+		return results;
+	}
+
+	/**
+	 * Returns a result with a copy of the given path and the cost and metrics of the search that
+	 * found it.
+	 */
+	private SearchResult copy(SearchResult result, List<Point> path)
+	{
+		SearchResult copy = new SearchResult(copy(path, 0), result.getNumberNodesExpanded());
+		copy.setMetrics(result.getMetrics());
+		return copy;
+	}
+
+	/**
+	 * Returns a copy of the cached path from a start to a goal, or null if there is none.
+	 */
+	private synchronized List<Point> lookup(Point initial, Point goal)
+	{
+		int v = w.getVersion();
+
+		if (v != version) {
+			clear();
+			version = v;
+		}
+
+		int start = w.getCellId(initial.getX(), initial.getY());
+		int target = w.getCellId(goal.getX(), goal.getY());
+
+		CachedPath e = entries.get(key(start, target));
+		if (e == null) {
+			e = cells.get(key(start, target));
+
+			if (e != null) {
+				// Mark the path as used.
+				entries.get(key(e.start, target));
+			}
+		}
+
+		if (e == null) {
+			misses++;
+			return null;
+		}
+
+		hits++;
+
+		if (e.path.isEmpty()) {
+			return new ArrayList<Point>();
+		}
+
+		for (int i = 0; i < e.path.size(); i++) {
+			Point p = e.path.get(i);
+
+			if (p.getX() == initial.getX() && p.getY() == initial.getY()) {
+				return copy(e.path, i);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Caches a path found while the world was at the given version. Paths found against an older
+	 * version are thrown away, as are paths to a goal that is already cached from the same start.
+	 */
+	private synchronized void store(int v, Point initial, Point goal, List<Point> path)
+	{
+		if (v != w.getVersion() || v != version) {
+			return;
+		}
+
+		int start = w.getCellId(initial.getX(), initial.getY());
+		int target = w.getCellId(goal.getX(), goal.getY());
+
+		if (entries.containsKey(key(start, target))) {
+			return;
+		}
+
+		CachedPath e = new CachedPath(start, target, copy(path, 0));
+		entries.put(key(start, target), e);
+
+		for (Point p : e.path) {
+			Long k = key(w.getCellId(p.getX(), p.getY()), target);
+
+			if (!cells.containsKey(k)) {
+				cells.put(k, e);
+			}
+		}
+	}
+
+	/**
+	 * Removes the cells along an evicted path from the index, unless they belong to another path.
+	 */
+	private void unindex(CachedPath e)
+	{
+		for (Point p : e.path) {
+			Long k = key(w.getCellId(p.getX(), p.getY()), e.goal);
+
+			if (cells.get(k) == e) {
+				cells.remove(k);
+			}
+		}
+	}
+
+	private static Long key(int start, int goal)
+	{
+		return Long.valueOf(((long) start << 32) | (goal & 0xffffffffL));
+	}
+
+	/**
+	 * Copies a path. Paths that allow random access are copied whole; any other path is copied by
+	 * removing points from its front, which is the one operation every path returned by a search
+	 * supports (paths from {@link HierarchicalSearch} are only refined as they are consumed).
+	 */
+	private static List<Point> drain(List<Point> path)
+	{
+		if (path instanceof RandomAccess) {
+			return new ArrayList<Point>(path);
+		}
+
+		List<Point> copy = new ArrayList<Point>();
+
+		while (!path.isEmpty()) {
+			copy.add(path.remove(0));
+		}
+
+		return copy;
+	}
+
+	private static List<Point> copy(List<Point> path, int from)
+	{
+		List<Point> copy = new ArrayList<Point>(path.size() - from);
+
+		for (int i = from; i < path.size(); i++) {
+			copy.add(new Point(path.get(i)));
+		}
+
+		return copy;
+	}
+
+	@Override
+	public String toString()
+	{
+		return algorithm.toString();
+	}
+
+	private static class CachedPath
+	{
+		final int start;
+		final int goal;
+		final List<Point> path;
+
+		CachedPath(int start, int goal, List<Point> path)
+		{
+			this.start = start;
+			this.goal = goal;
+			this.path = path;
+		}
+	}
+}
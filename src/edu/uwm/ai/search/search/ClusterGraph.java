@@ -0,0 +1,503 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import edu.uwm.ai.search.DirtyRegion;
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.WorldChange;
+import edu.uwm.ai.search.WorldListener;
+import edu.uwm.ai.search.util.BitGrid;
+import edu.uwm.ai.search.util.IndexedHeap;
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * The abstract graph used by {@link HierarchicalSearch}. The world is cut into square clusters.
+ * Wherever two neighbouring clusters share a run of free cells along their common border, one
+ * entrance is placed in the middle of a short run and one at each end of a long run; each entrance
+ * is a pair of facing cells, one on either side of the border. Within each cluster the distance
+ * between every pair of its entrance cells is precomputed by a search that never leaves the
+ * cluster.
+ * 
+ * The graph listens to its world. A change only marks its cluster as dirty, and the dirty clusters
+ * and their neighbours are rebuilt the next time the graph is used.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class ClusterGraph implements WorldListener
+{
+	/**
+	 * Runs of free border cells at least this long get an entrance at each end instead of one in
+	 * the middle.
+	 */
+	private static final int LONG_ENTRANCE = 6;
+
+	private final World w;
+	private final BitGrid grid;
+	private final int size;
+	private final int cols;
+	private final int rows;
+
+	private final int[][] entrances;
+	private final int[][] partners;
+	private final float[][] distances;
+	private final boolean[] dirty;
+	private boolean anyDirty = true;
+
+	/**
+	 * The position of every entrance cell in the entrance list of its cluster, or -1.
+	 */
+	private final int[] entranceIndex;
+
+	// Scratch space for searches that stay inside of one cluster, indexed by position in the
+	// cluster.
+	private final float[] g;
+	private final int[] parent;
+	private final int[] seen;
+	private final IndexedHeap open;
+	private int generation;
+
+	public ClusterGraph(World w, int size)
+	{
+		this.w = w;
+		this.grid = w.getGrid();
+		this.size = size;
+		this.cols = (w.getWidth() + size - 1) / size;
+		this.rows = (w.getHeight() + size - 1) / size;
+
+		this.entrances = new int[cols * rows][];
+		this.partners = new int[cols * rows][];
+		this.distances = new float[cols * rows][];
+		this.dirty = new boolean[cols * rows];
+		this.entranceIndex = new int[w.getCellCount()];
+
+		Arrays.fill(dirty, true);
+		Arrays.fill(entranceIndex, -1);
+
+		this.g = new float[size * size];
+		this.parent = new int[size * size];
+		this.seen = new int[size * size];
+		this.open = new IndexedHeap(size * size);
+
+		w.addListener(this);
+	}
+
+	public World getWorld()
+	{
+		return w;
+	}
+
+	@Override
+	public synchronized void worldChanged(WorldChange change)
+	{
+		DirtyRegion region = change.getRegion();
+
+		for (int c = 0; c < region.size(); c++) {
+			dirty[getCluster(w.getCellId(region.getX(c), region.getY(c)))] = true;
+		}
+
+		anyDirty = true;
+	}
+
+	/**
+	 * Rebuilds the entrances and distances of every dirty cluster and of its four neighbours, whose
+	 * entrances share its borders.
+	 */
+	public synchronized void refresh()
+	{
+		if (!anyDirty) {
+			return;
+		}
+
+		boolean[] rebuild = new boolean[cols * rows];
+
+		for (int c = 0; c < cols * rows; c++) {
+			if (dirty[c]) {
+				int cx = c % cols;
+				int cy = c / cols;
+
+				rebuild[c] = true;
+
+				if (cx > 0) {
+					rebuild[c - 1] = true;
+				}
+
+				if (cx < cols - 1) {
+					rebuild[c + 1] = true;
+				}
+
+				if (cy > 0) {
+					rebuild[c - cols] = true;
+				}
+
+				if (cy < rows - 1) {
+					rebuild[c + cols] = true;
+				}
+			}
+		}
+
+		for (int c = 0; c < cols * rows; c++) {
+			if (rebuild[c]) {
+				findEntrances(c);
+			}
+		}
+
+		for (int c = 0; c < cols * rows; c++) {
+			if (rebuild[c]) {
+				findDistances(c);
+			}
+
+			dirty[c] = false;
+		}
+
+		anyDirty = false;
+	}
+
+	public int getCluster(int id)
+	{
+		return (w.getCellY(id) / size) * cols + w.getCellX(id) / size;
+	}
+
+	/**
+	 * Returns the entrance cells of a cluster. The array must not be modified.
+	 */
+	public int[] getEntrances(int cluster)
+	{
+		return entrances[cluster];
+	}
+
+	/**
+	 * Returns the position of a cell in the entrance list of its cluster, or -1 if it is not an
+	 * entrance.
+	 */
+	public int getEntranceIndex(int id)
+	{
+		return entranceIndex[id];
+	}
+
+	/**
+	 * Returns the distance within a cluster between two of its entrances, given by their positions
+	 * in its entrance list, or infinity if one cannot be reached from the other inside the cluster.
+	 */
+	public float getDistance(int cluster, int from, int to)
+	{
+		return distances[cluster][from * entrances[cluster].length + to];
+	}
+
+	/**
+	 * Returns the cell facing an entrance across a border, or -1. Since a cell in the corner of a
+	 * cluster lies on two borders, each entrance has two partner slots.
+	 * 
+	 * @param cluster
+	 *            The cluster of the entrance
+	 * @param index
+	 *            The position of the entrance in the entrance list of the cluster
+	 * @param slot
+	 *            Zero or one
+	 */
+	public int getPartner(int cluster, int index, int slot)
+	{
+		return partners[cluster][index * 2 + slot];
+	}
+
+	/**
+	 * Finds the distances from a cell to every entrance of its cluster, and to a second cell if that
+	 * is in the same cluster, without leaving the cluster.
+	 * 
+	 * @return An array holding the distance to each entrance in order, followed by the distance to
+	 *         the second cell, where unreachable cells are at infinity.
+	 */
+	public synchronized float[] connect(int id, int other)
+	{
+		int cluster = getCluster(id);
+		int[] cells = entrances[cluster];
+		float[] result = new float[cells.length + 1];
+
+		search(cluster, id, -1);
+
+		for (int i = 0; i < cells.length; i++) {
+			result[i] = distanceTo(cluster, cells[i]);
+		}
+
+		result[cells.length] = getCluster(other) == cluster ? distanceTo(cluster, other) : Float.POSITIVE_INFINITY;
+
+		return result;
+	}
+
+	/**
+	 * Finds a path between two cells of the same cluster, or two adjacent cells, without leaving the
+	 * cluster.
+	 * 
+	 * @return The cells of the path after the first, or null if there is no such path.
+	 */
+	public synchronized List<Point> refine(int from, int to)
+	{
+		int fx = w.getCellX(from);
+		int fy = w.getCellY(from);
+		int tx = w.getCellX(to);
+		int ty = w.getCellY(to);
+
+		List<Point> path = new ArrayList<Point>();
+
+		if (Math.abs(tx - fx) <= 1 && Math.abs(ty - fy) <= 1) {
+			if (!grid.isBlocked(fx, fy) && canMove(fx, fy, tx - fx, ty - fy)) {
+				path.add(new Point(tx, ty));
+				return path;
+			}
+		}
+
+		int cluster = getCluster(from);
+
+		if (getCluster(to) != cluster || !search(cluster, from, to)) {
+			return null;
+		}
+
+		int x0 = (cluster % cols) * size;
+		int y0 = (cluster / cols) * size;
+
+		for (int p = local(cluster, to); p != -1; p = parent[p]) {
+			path.add(new Point(x0 + p % size, y0 + p / size));
+		}
+
+		path.remove(path.size() - 1);
+		Collections.reverse(path);
+		return path;
+	}
+
+	private int local(int cluster, int id)
+	{
+		return (w.getCellY(id) - (cluster / cols) * size) * size + w.getCellX(id) - (cluster % cols) * size;
+	}
+
+	private float distanceTo(int cluster, int id)
+	{
+		int l = local(cluster, id);
+		return seen[l] == generation ? g[l] : Float.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Runs a uniform cost search from a cell that never leaves its cluster, stopping early once the
+	 * target (if not -1) is reached.
+	 * 
+	 * @return True if the target was reached.
+	 */
+	private boolean search(int cluster, int from, int to)
+	{
+		int x0 = (cluster % cols) * size;
+		int y0 = (cluster / cols) * size;
+		int x1 = Math.min(x0 + size, w.getWidth());
+		int y1 = Math.min(y0 + size, w.getHeight());
+
+		if (++generation == Integer.MAX_VALUE) {
+			Arrays.fill(seen, 0);
+			generation = 1;
+		}
+
+		open.clear();
+
+		int source = local(cluster, from);
+		int target = to == -1 ? -1 : local(cluster, to);
+
+		seen[source] = generation;
+		g[source] = 0;
+		parent[source] = -1;
+		open.add(source, 0);
+
+		while (!open.isEmpty()) {
+			int current = open.poll();
+
+			if (current == target) {
+				return true;
+			}
+
+			int x = x0 + current % size;
+			int y = y0 + current / size;
+
+			for (int k = 0; k < 8; k++) {
+				int nx = x + BaseSearchAlgorithm.DX[k];
+				int ny = y + BaseSearchAlgorithm.DY[k];
+
+				if (nx < x0 || ny < y0 || nx >= x1 || ny >= y1 || !canMove(x, y, BaseSearchAlgorithm.DX[k], BaseSearchAlgorithm.DY[k])) {
+					continue;
+				}
+
+				int next = (ny - y0) * size + nx - x0;
+				float cand = g[current] + BaseSearchAlgorithm.moveCost(BaseSearchAlgorithm.DX[k], BaseSearchAlgorithm.DY[k]);
+
+				if (seen[next] != generation || cand < g[next]) {
+					if (seen[next] == generation && !open.contains(next)) {
+						continue;
+					}
+
+					seen[next] = generation;
+					g[next] = cand;
+					parent[next] = current;
+					open.add(next, cand);
+				}
+			}
+		}
+
+		return false;
+	}
+
+	private boolean canMove(int x, int y, int dx, int dy)
+	{
+		if (grid.isBlocked(x + dx, y + dy)) {
+			return false;
+		}
+
+		return dx == 0 || dy == 0 || !grid.isBlocked(x + dx, y) || !grid.isBlocked(x, y + dy);
+	}
+
+	/**
+	 * Rebuilds the entrance list of a cluster from its four borders.
+	 */
+	private void findEntrances(int cluster)
+	{
+		if (entrances[cluster] != null) {
+			for (int id : entrances[cluster]) {
+				entranceIndex[id] = -1;
+			}
+		}
+
+		int cx = cluster % cols;
+		int cy = cluster / cols;
+		int x0 = cx * size;
+		int y0 = cy * size;
+		int x1 = Math.min(x0 + size, w.getWidth()) - 1;
+		int y1 = Math.min(y0 + size, w.getHeight()) - 1;
+
+		List<int[]> pairs = new ArrayList<int[]>();
+
+		if (cx > 0) {
+			scanBorder(true, x0 - 1, y0, y1, false, pairs);
+		}
+
+		if (cx < cols - 1) {
+			scanBorder(true, x1, y0, y1, true, pairs);
+		}
+
+		if (cy > 0) {
+			scanBorder(false, y0 - 1, x0, x1, false, pairs);
+		}
+
+		if (cy < rows - 1) {
+			scanBorder(false, y1, x0, x1, true, pairs);
+		}
+
+		int[] cells = new int[pairs.size()];
+		int[] facing = new int[pairs.size() * 2];
+		int count = 0;
+
+		for (int[] pair : pairs) {
+			int index = entranceIndex[pair[0]];
+
+			if (index == -1) {
+				index = count++;
+				cells[index] = pair[0];
+				facing[index * 2] = pair[1];
+				facing[index * 2 + 1] = -1;
+				entranceIndex[pair[0]] = index;
+			} else {
+				facing[index * 2 + 1] = pair[1];
+			}
+		}
+
+		entrances[cluster] = Arrays.copyOf(cells, count);
+		partners[cluster] = Arrays.copyOf(facing, count * 2);
+	}
+
+	/**
+	 * Finds the entrances across one border. The border lies between the given line and the next
+	 * one, both running from one position to another inclusive.
+	 * 
+	 * @param vertical
+	 *            True if the border runs between two columns, false if between two rows
+	 * @param line
+	 *            The column or row just before the border
+	 * @param from
+	 *            The first row or column along the border
+	 * @param to
+	 *            The last row or column along the border
+	 * @param before
+	 *            True to report the cells before the border as the entrances, false to report the
+	 *            cells after it
+	 * @param pairs
+	 *            Receives each entrance as an array of its cell and the facing cell
+	 */
+	private void scanBorder(boolean vertical, int line, int from, int to, boolean before, List<int[]> pairs)
+	{
+		int run = -1;
+
+		for (int p = from; p <= to + 1; p++) {
+			boolean open = p <= to && (vertical ? !grid.isBlocked(line, p) && !grid.isBlocked(line + 1, p) : !grid.isBlocked(p, line) && !grid.isBlocked(p, line + 1));
+
+			if (open && run == -1) {
+				run = p;
+			} else if (!open && run != -1) {
+				int length = p - run;
+
+				if (length < LONG_ENTRANCE) {
+					addPair(vertical, line, run + length / 2, before, pairs);
+				} else {
+					addPair(vertical, line, run, before, pairs);
+					addPair(vertical, line, p - 1, before, pairs);
+				}
+
+				run = -1;
+			}
+		}
+	}
+
+	private void addPair(boolean vertical, int line, int p, boolean before, List<int[]> pairs)
+	{
+		int a = vertical ? w.getCellId(line, p) : w.getCellId(p, line);
+		int b = vertical ? w.getCellId(line + 1, p) : w.getCellId(p, line + 1);
+
+		pairs.add(before ? new int[] { a, b } : new int[] { b, a });
+	}
+
+	/**
+	 * Recomputes the distances between every pair of entrances of a cluster.
+	 */
+	private void findDistances(int cluster)
+	{
+		int[] cells = entrances[cluster];
+		float[] d = new float[cells.length * cells.length];
+
+		for (int i = 0; i < cells.length; i++) {
+			search(cluster, cells[i], -1);
+
+			for (int j = 0; j < cells.length; j++) {
+				d[i * cells.length + j] = distanceTo(cluster, cells[j]);
+			}
+		}
+
+		distances[cluster] = d;
+	}
+}
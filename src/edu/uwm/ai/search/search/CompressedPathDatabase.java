@@ -0,0 +1,461 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.util.BitGrid;
+import edu.uwm.ai.search.util.IndexedHeap;
+
+/**
+ * A compressed path database: for every free source cell, the first move of a shortest path to
+ * every target cell. The first moves of a source are listed by target in row-major order and run
+ * length encoded, since the targets on one side of a wall mostly share a first move. Blocked
+ * targets and the source itself can take any move, so they never start a run of their own.
+ * 
+ * A path is read by looking up the first move from the start, making it, and looking up the first
+ * move from there, so a query costs one binary search over the runs of a cell per step and no
+ * search at all. The database is built once for a static map, with one Dijkstra search per free
+ * cell spread over all processors, and is written to a file that is memory-mapped when read, so
+ * opening a large database does not copy it onto the heap.
+ * 
+ * Each run is a single int: the index of its first target shifted left by four, and the move, an
+ * index into the eight moves of {@link BaseSearchAlgorithm} or {@link #NO_MOVE} if the target
+ * cannot be reached. The runs of source s are those from offset s up to offset s + 1.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class CompressedPathDatabase
+{
+	/**
+	 * The first four bytes of a saved database, "CPD " in ASCII.
+	 */
+	public static final int MAGIC = 0x43504420;
+
+	/**
+	 * The move of a target that cannot be reached from the source.
+	 */
+	public static final int NO_MOVE = 8;
+
+	private static final int VERSION = 1;
+	private static final int HEADER = 40;
+
+	private final int w;
+	private final int h;
+	private final double diagCost;
+	private final long fingerprint;
+	private final IntBuffer offsets;
+	private final IntBuffer runs;
+
+	private CompressedPathDatabase(int w, int h, double diagCost, long fingerprint, IntBuffer offsets, IntBuffer runs)
+	{
+		this.w = w;
+		this.h = h;
+		this.diagCost = diagCost;
+		this.fingerprint = fingerprint;
+		this.offsets = offsets;
+		this.runs = runs;
+	}
+
+	/**
+	 * Builds the database of a world on one thread per processor.
+	 */
+	public static CompressedPathDatabase build(World world)
+	{
+		return build(world, null, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Builds the database of a world, with diagonal moves costing
+	 * {@link BaseSearchAlgorithm#diagCost}. This runs a Dijkstra search from every free cell, so it
+	 * is meant to be done offline and saved.
+	 * 
+	 * @param world
+	 *            The world, which must not change while the database is built or used
+	 * @param executor
+	 *            The executor to run the searches on, or null to use a pool of the given number of
+	 *            threads for the duration of the call
+	 * @param threads
+	 *            The number of searches to run at once
+	 * @throws IllegalArgumentException
+	 *             If the database would not fit in a file that can be mapped.
+	 */
+	public static CompressedPathDatabase build(World world, ExecutorService executor, int threads)
+	{
+		final BitGrid grid = world.getGrid();
+		final int w = world.getWidth();
+		final int h = world.getHeight();
+		final int n = w * h;
+		final double diagCost = BaseSearchAlgorithm.diagCost;
+
+		if (n >= 1 << 27) {
+			throw new IllegalArgumentException("The world is too large for a path database.");
+		}
+
+		final int[][] rows = new int[n][];
+		final AtomicInteger next = new AtomicInteger();
+
+		ExecutorService pool = executor == null ? Executors.newFixedThreadPool(threads) : executor;
+
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>(threads);
+			for (int t = 0; t < threads; t++) {
+				futures.add(pool.submit(new Callable<Void>() {
+					@Override
+					public Void call()
+					{
+						FirstMoves moves = new FirstMoves(grid, diagCost);
+
+						for (int s = next.getAndIncrement(); s < n; s = next.getAndIncrement()) {
+							if (!grid.isBlocked(s % w, s / w)) {
+								rows[s] = moves.compress(s);
+							}
+						}
+
+						return null;
+					}
+				}));
+			}
+
+			for (Future<Void> f : futures) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			if (executor == null) {
+				pool.shutdown();
+			}
+		}
+
+		long total = 0;
+		for (int[] row : rows) {
+			total += row == null ? 0 : row.length;
+		}
+
+		if (HEADER + 4L * (n + 1) + 4L * total > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The path database of the world would be too large.");
+		}
+
+		int[] offsets = new int[n + 1];
+		int[] runs = new int[(int) total];
+
+		for (int s = 0; s < n; s++) {
+			int length = rows[s] == null ? 0 : rows[s].length;
+
+			if (length > 0) {
+				System.arraycopy(rows[s], 0, runs, offsets[s], length);
+			}
+
+			offsets[s + 1] = offsets[s] + length;
+		}
+
+		return new CompressedPathDatabase(w, h, diagCost, grid.fingerprint(), IntBuffer.wrap(offsets), IntBuffer.wrap(runs));
+	}
+
+	/**
+	 * The buffers of a single building thread, reused for every source it handles.
+	 */
+	private static class FirstMoves
+	{
+		private final BitGrid grid;
+		private final double diagCost;
+		private final int w;
+		private final double[] distance;
+		private final byte[] first;
+		private final IndexedHeap open;
+		private int[] row = new int[64];
+
+		FirstMoves(BitGrid grid, double diagCost)
+		{
+			this.grid = grid;
+			this.diagCost = diagCost;
+			this.w = grid.getWidth();
+
+			int n = w * grid.getHeight();
+			this.distance = new double[n];
+			this.first = new byte[n];
+			this.open = new IndexedHeap(n);
+		}
+
+		/**
+		 * Runs Dijkstra's algorithm from a source, recording for every cell the move out of the
+		 * source that its shortest path starts with, and returns the runs of those moves.
+		 */
+		int[] compress(int source)
+		{
+			Arrays.fill(distance, Double.POSITIVE_INFINITY);
+			Arrays.fill(first, (byte) NO_MOVE);
+
+			distance[source] = 0;
+			open.add(source, 0);
+
+			while (!open.isEmpty()) {
+				int current = open.poll();
+				int x = current % w;
+				int y = current / w;
+
+				for (int k = 0; k < 8; k++) {
+					int dx = BaseSearchAlgorithm.DX[k];
+					int dy = BaseSearchAlgorithm.DY[k];
+
+					if (grid.isBlocked(x + dx, y + dy) || (k >= 4 && grid.isBlocked(x + dx, y) && grid.isBlocked(x, y + dy))) {
+						continue;
+					}
+
+					int next = current + dy * w + dx;
+					double g = distance[current] + (k >= 4 ? diagCost : 1);
+
+					// The keys are floats, so a cell may come off the heap a little early; it is
+					// simply added again if a shorter distance turns up.
+					if (g < distance[next]) {
+						distance[next] = g;
+						first[next] = current == source ? (byte) k : first[current];
+						open.add(next, (float) g);
+					}
+				}
+			}
+
+			int length = 0;
+			int move = -1;
+
+			for (int t = 0; t < first.length; t++) {
+				if (t == source || grid.isBlocked(t % w, t / w) || first[t] == move) {
+					continue;
+				}
+
+				if (length == row.length) {
+					row = Arrays.copyOf(row, length * 2);
+				}
+
+				// The first run starts at target zero, so that every target falls in some run.
+				int start = length == 0 ? 0 : t;
+
+				row[length++] = start << 4 | first[t];
+				move = first[t];
+			}
+
+			return Arrays.copyOf(row, length);
+		}
+	}
+
+	/**
+	 * Returns the first move of a shortest path between two cells.
+	 * 
+	 * @param source
+	 *            The id of the free cell to start from, numbered as in
+	 *            {@link World#getCellId(int, int)}
+	 * @param target
+	 *            The id of the free cell to reach
+	 * @return An index into the eight moves of {@link BaseSearchAlgorithm}, or {@link #NO_MOVE} if
+	 *         the target cannot be reached. The move from a cell to itself is undefined.
+	 */
+	public int getFirstMove(int source, int target)
+	{
+		int lo = offsets.get(source);
+		int hi = offsets.get(source + 1) - 1;
+
+		if (hi < lo) {
+			return NO_MOVE;
+		}
+
+		// Finds the last run that starts at or before the target.
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+
+			if (runs.get(mid) >>> 4 <= target) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+
+		return runs.get(lo) & 15;
+	}
+
+	public int getWidth()
+	{
+		return w;
+	}
+
+	public int getHeight()
+	{
+		return h;
+	}
+
+	/**
+	 * Returns the cost of a diagonal move the database was built with. Its paths are only shortest
+	 * while {@link BaseSearchAlgorithm#diagCost} has the same value.
+	 */
+	public double getDiagCost()
+	{
+		return diagCost;
+	}
+
+	/**
+	 * Returns the {@link BitGrid#fingerprint() fingerprint} of the grid the database was built for.
+	 */
+	public long getFingerprint()
+	{
+		return fingerprint;
+	}
+
+	/**
+	 * Returns the total number of runs of all sources.
+	 */
+	public int getRunCount()
+	{
+		return runs.limit();
+	}
+
+	/**
+	 * Writes the database to a file, replacing anything already there: a header of the magic
+	 * number, a format version, the width and height, the diagonal cost, the fingerprint of the
+	 * grid, the number of runs and a reserved int that keeps the tables aligned, then the offsets and
+	 * the runs as big-endian ints.
+	 */
+	public void save(File file) throws IOException
+	{
+		int n = w * h;
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER);
+		header.putInt(MAGIC);
+		header.putInt(VERSION);
+		header.putInt(w);
+		header.putInt(h);
+		header.putDouble(diagCost);
+		header.putLong(fingerprint);
+		header.putInt(runs.limit());
+		header.putInt(0);
+		header.flip();
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+		try {
+			FileChannel channel = raf.getChannel();
+			channel.truncate(0);
+
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+
+			write(channel, offsets, n + 1);
+			write(channel, runs, runs.limit());
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static void write(FileChannel channel, IntBuffer ints, int count) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+		for (int i = 0; i < count; i++) {
+			if (!buffer.hasRemaining()) {
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				buffer.clear();
+			}
+
+			buffer.putInt(ints.get(i));
+		}
+
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Maps a database written by {@link #save(File)}. Nothing is copied onto the heap; the runs are
+	 * paged in from the file as queries touch them.
+	 * 
+	 * @param world
+	 *            The world the database is for
+	 * @param file
+	 *            The file to map
+	 * @throws IOException
+	 *             If the file cannot be read, is not a path database, or was built for a different
+	 *             map.
+	 */
+	public static CompressedPathDatabase load(World world, File file) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+		try {
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if (buffer.remaining() < HEADER || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+				throw new IOException("Not a path database: " + file);
+			}
+
+			int w = buffer.getInt(8);
+			int h = buffer.getInt(12);
+			double diagCost = buffer.getDouble(16);
+			long fingerprint = buffer.getLong(24);
+			int count = buffer.getInt(32);
+
+			if (w != world.getWidth() || h != world.getHeight() || fingerprint != world.getGrid().fingerprint()) {
+				throw new IOException("Path database was built for a different map: " + file);
+			}
+
+			if (count < 0 || buffer.capacity() != HEADER + 4L * (w * h + 1) + 4L * count) {
+				throw new IOException("Truncated path database: " + file);
+			}
+
+			buffer.position(HEADER);
+			IntBuffer offsets = buffer.slice().asIntBuffer();
+			offsets.limit(w * h + 1);
+
+			buffer.position(HEADER + 4 * (w * h + 1));
+			IntBuffer runs = buffer.slice().asIntBuffer();
+
+			return new CompressedPathDatabase(w, h, diagCost, fingerprint, offsets, runs);
+		} finally {
+			raf.close();
+		}
+	}
+}
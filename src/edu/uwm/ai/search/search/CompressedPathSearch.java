@@ -0,0 +1,119 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.heuristic.EuclidianDistance;
+import edu.uwm.ai.search.util.BitGrid;
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * Reads paths out of a {@link CompressedPathDatabase} instead of searching: each step looks up the
+ * first move from the current cell to the goal and makes it, so a query takes time in proportion to
+ * the length of the path whatever the size of the map. Every looked up cell counts as expanded.
+ * 
+ * The database only describes the map it was built for. Once obstacles have been added to the
+ * world, every query falls back to indexed A* with the straight line distance, until a new engine
+ * is made with a database built for the changed world.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class CompressedPathSearch extends BaseSearchAlgorithm
+{
+	private World w;
+	private CompressedPathDatabase database;
+	private int version;
+	private IndexedAStarSearch fallback;
+
+	public CompressedPathSearch(World w, CompressedPathDatabase database)
+	{
+		super(w);
+
+		if (database.getWidth() != w.getWidth() || database.getHeight() != w.getHeight() || database.getFingerprint() != w.getGrid().fingerprint()) {
+			throw new IllegalArgumentException("The path database was built for a different world.");
+		}
+
+		this.w = w;
+		this.database = database;
+		this.version = w.getVersion();
+		this.fallback = new IndexedAStarSearch(w, new EuclidianDistance());
+	}
+
+	@Override
+	protected SearchResult doSearch(Point initial, Point goal, SearchMetrics metrics)
+	{
+		List<Point> path = new ArrayList<Point>();
+
+		if (!w.isValidPosition(initial) || !w.isValidPosition(goal)) {
+			return new SearchResult(path, 0);
+		}
+
+		if (w.getVersion() != version) {
+			return fallback.doSearch(initial, goal, metrics);
+		}
+
+		BitGrid grid = w.getGrid();
+		int x = initial.getX();
+		int y = initial.getY();
+		int target = w.getCellId(goal.getX(), goal.getY());
+		int expanded = 0;
+
+		path.add(new Point(x, y));
+
+		while (x != goal.getX() || y != goal.getY()) {
+			int k = database.getFirstMove(w.getCellId(x, y), target);
+
+			metrics.expanded(x, y);
+			expanded++;
+
+			if (k == CompressedPathDatabase.NO_MOVE) {
+				return new SearchResult(new ArrayList<Point>(), expanded);
+			}
+
+			int nx = x + DX[k];
+			int ny = y + DY[k];
+
+			// Only possible if the grid was changed behind the world's back; a partial path must not
+			// pass for a path to the goal.
+			if (grid.isBlocked(nx, ny) || (k >= 4 && grid.isBlocked(nx, y) && grid.isBlocked(x, ny))) {
+				return new SearchResult(new ArrayList<Point>(), expanded);
+			}
+
+			x = nx;
+			y = ny;
+			path.add(new Point(x, y));
+		}
+
+		return new SearchResult(path, expanded);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "CPD";
+	}
+}
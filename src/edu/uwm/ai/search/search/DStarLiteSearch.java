@@ -0,0 +1,488 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uwm.ai.search.DirtyRegion;
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.WorldChange;
+import edu.uwm.ai.search.WorldListener;
+import edu.uwm.ai.search.heuristic.Heuristic;
+import edu.uwm.ai.search.util.IndexedHeap;
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * An incremental planner for an entity chasing a moving target (Moving Target D* Lite). The search
+ * runs forwards from the chaser and, unlike the other algorithms, keeps its search tree between
+ * calls, so each call only repairs the part of the tree that has changed:
+ * 
+ * <ul>
+ * <li>When the target moves, nothing in the tree changes but the heuristic. The keys already in the
+ * open list are kept as lower bounds by adding the distance the target moved to an offset, and
+ * are corrected lazily as they reach the top of the heap.</li>
+ * <li>When the chaser moves along its path, the subtree rooted at its new position is kept and
+ * every other cell is reset to unreached before the search resumes. Costs are stored relative to
+ * the cell the tree was first rooted at, so the kept subtree stays consistent without touching it.
+ * If the chaser has left the tree, the search starts over.</li>
+ * <li>When an obstacle is added, the cells around it have their one-step lookahead costs
+ * recomputed the next time a path is requested.</li>
+ * </ul>
+ * 
+ * Every instance holds arrays the size of the world, so each chaser should have its own instance.
+ * The heuristic must be consistent.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class DStarLiteSearch extends BaseSearchAlgorithm implements WorldListener
+{
+	private static final float INFINITY = Float.POSITIVE_INFINITY;
+
+	/**
+	 * The cost of the root above which the search starts over rather than lose float precision.
+	 */
+	private static final float MAX_BASE = 1 << 16;
+
+	private World w;
+	private Heuristic h;
+
+	private final float[] g;
+	private final float[] rhs;
+	private final int[] parent;
+	private final IndexedHeap open;
+
+	/**
+	 * Every cell with a finite cost, so that re-rooting and restarting the search only visit the
+	 * part of the world the search has reached.
+	 */
+	private final int[] reached;
+	private final boolean[] isReached;
+	private int numReached;
+
+	private final byte[] marks;
+	private final int[] stack;
+	private final Point probe = new Point(0, 0);
+	private final Point target = new Point(0, 0);
+
+	private int start = -1;
+	private int goal = -1;
+	private float km;
+
+	private final DirtyRegion changes = new DirtyRegion();
+	private SearchMetrics metrics;
+
+	public DStarLiteSearch(World w, Heuristic h)
+	{
+		super(w);
+
+		this.w = w;
+		this.h = h;
+
+		int n = w.getCellCount();
+		this.g = new float[n];
+		this.rhs = new float[n];
+		this.parent = new int[n];
+		this.open = new IndexedHeap(n);
+		this.reached = new int[n];
+		this.isReached = new boolean[n];
+		this.marks = new byte[n];
+		this.stack = new int[n];
+
+		for (int i = 0; i < n; i++) {
+			g[i] = INFINITY;
+			rhs[i] = INFINITY;
+			parent[i] = -1;
+		}
+
+		w.addListener(this);
+	}
+
+	@Override
+	public synchronized void worldChanged(WorldChange change)
+	{
+		changes.addAll(change.getRegion());
+	}
+
+	@Override
+	protected synchronized SearchResult doSearch(Point initial, Point goal, SearchMetrics metrics)
+	{
+		if (!w.isValidPosition(initial) || !w.isValidPosition(goal)) {
+			return new SearchResult(new ArrayList<Point>(), 0);
+		}
+
+		this.metrics = metrics;
+
+		int s = w.getCellId(initial.getX(), initial.getY());
+		int t = w.getCellId(goal.getX(), goal.getY());
+
+		if (start == -1) {
+			initialize(s, t);
+		} else {
+			if (t != this.goal) {
+				// Every key in the open list was computed with the old target. Since the heuristic
+				// is consistent, it can have dropped by at most the heuristic distance between the
+				// two targets, so adding that to the offset keeps the old keys as lower bounds.
+				km += heuristic(this.goal, t);
+				this.goal = t;
+			}
+
+			applyChanges();
+
+			if (s != start) {
+				moveStart(s);
+			}
+		}
+
+		int cost = computePath();
+
+		if (g[t] == INFINITY) {
+			return new SearchResult(new ArrayList<Point>(), cost);
+		}
+
+		return new SearchResult(backtrace(s, t), cost);
+	}
+
+	private void initialize(int s, int t)
+	{
+		for (int r = 0; r < numReached; r++) {
+			int i = reached[r];
+			g[i] = INFINITY;
+			rhs[i] = INFINITY;
+			parent[i] = -1;
+			isReached[i] = false;
+		}
+
+		numReached = 0;
+		open.clear();
+		changes.clear();
+		km = 0;
+		start = s;
+		goal = t;
+
+		rhs[s] = 0;
+		reach(s);
+		update(s);
+	}
+
+	private void reach(int u)
+	{
+		if (!isReached[u]) {
+			isReached[u] = true;
+			reached[numReached++] = u;
+		}
+	}
+
+	/**
+	 * Recomputes the one-step lookahead cost of every cell next to, or on, a cell whose obstacle
+	 * changed since the last search. These are the only cells with an incoming move that could have
+	 * been opened or closed by the change.
+	 */
+	private void applyChanges()
+	{
+		for (int c = 0; c < changes.size(); c++) {
+			int x = changes.getX(c);
+			int y = changes.getY(c);
+
+			for (int j = Math.max(0, y - 1); j <= Math.min(w.getHeight() - 1, y + 1); j++) {
+				for (int i = Math.max(0, x - 1); i <= Math.min(w.getWidth() - 1, x + 1); i++) {
+					int id = w.getCellId(i, j);
+
+					if (id != start) {
+						lookahead(id);
+						update(id);
+					}
+				}
+			}
+		}
+
+		changes.clear();
+	}
+
+	/**
+	 * Re-roots the search tree at the new position of the chaser. Cells whose parent chain passes
+	 * through the new root keep their costs; everything else is forgotten and its lookahead cost is
+	 * recomputed from the cells that were kept.
+	 */
+	private void moveStart(int s)
+	{
+		// The shortest path to every cell in the kept subtree passes through the new root, so its
+		// cost from the new root is its stored cost less that of the root. Rather than lower all
+		// of them, the root keeps its stored cost as the base every other cost is measured from.
+		float base = Math.min(g[s], rhs[s]);
+
+		if (base > MAX_BASE || !inTree(s)) {
+			initialize(s, goal);
+			return;
+		}
+
+		// Mark the subtree under the new root: 1 for cells in it, 2 for cells outside of it, 3 for
+		// cells whose chain is still being followed (which guards against a cycle of parents).
+
+		marks[s] = 1;
+		for (int r = 0; r < numReached; r++) {
+			int i = reached[r];
+
+			if (marks[i] != 0) {
+				continue;
+			}
+
+			int top = 0;
+			int c = i;
+
+			while (c != -1 && marks[c] == 0) {
+				marks[c] = 3;
+				stack[top++] = c;
+				c = parent[c];
+			}
+
+			byte mark = c != -1 && marks[c] == 1 ? (byte) 1 : (byte) 2;
+
+			while (top > 0) {
+				marks[stack[--top]] = mark;
+			}
+		}
+
+		int numDeleted = 0;
+		int numKept = 0;
+		for (int r = 0; r < numReached; r++) {
+			int i = reached[r];
+
+			if (marks[i] == 1) {
+				reached[numKept++] = i;
+			} else {
+				g[i] = INFINITY;
+				rhs[i] = INFINITY;
+				parent[i] = -1;
+				isReached[i] = false;
+				open.remove(i);
+				stack[numDeleted++] = i;
+			}
+
+			marks[i] = 0;
+		}
+
+		numReached = numKept;
+
+		start = s;
+		parent[s] = -1;
+		rhs[s] = base;
+		update(s);
+
+		for (int d = 0; d < numDeleted; d++) {
+			lookahead(stack[d]);
+			update(stack[d]);
+		}
+	}
+
+	private boolean inTree(int s)
+	{
+		int steps = 0;
+
+		while (s != -1 && s != start) {
+			if (++steps > parent.length) {
+				return false;
+			}
+
+			s = parent[s];
+		}
+
+		return s == start;
+	}
+
+	private int computePath()
+	{
+		int cost = 0;
+
+		while (!open.isEmpty()) {
+			int u = open.peek();
+			float k1 = open.peekKey();
+			float k2 = open.getTie(u);
+
+			float goalK2 = Math.min(g[goal], rhs[goal]);
+			float goalK1 = goalK2 + km;
+
+			if (!less(k1, k2, goalK1, goalK2) && rhs[goal] == g[goal]) {
+				break;
+			}
+
+			cost++;
+
+			float m = Math.min(g[u], rhs[u]);
+			float n1 = m + heuristic(u, goal) + km;
+
+			if (less(k1, k2, n1, m)) {
+				// The key was computed for an earlier target.
+				open.add(u, n1, m);
+				continue;
+			}
+
+			int x = w.getCellX(u);
+			int y = w.getCellY(u);
+			metrics.expanded(x, y);
+
+			if (g[u] > rhs[u]) {
+				g[u] = rhs[u];
+				open.remove(u);
+
+				for (int k = 0; k < 8; k++) {
+					if (!canMove(x, y, DX[k], DY[k])) {
+						continue;
+					}
+
+					int v = w.getCellId(x + DX[k], y + DY[k]);
+					float cand = g[u] + moveCost(DX[k], DY[k]);
+
+					if (v != start && cand < rhs[v]) {
+						rhs[v] = cand;
+						parent[v] = u;
+						reach(v);
+						update(v);
+					} else {
+						metrics.duplicate();
+					}
+				}
+			} else {
+				g[u] = INFINITY;
+
+				for (int k = 0; k < 8; k++) {
+					int i = x + DX[k];
+					int j = y + DY[k];
+
+					if (i < 0 || j < 0 || i >= w.getWidth() || j >= w.getHeight()) {
+						continue;
+					}
+
+					int v = w.getCellId(i, j);
+
+					if (v != start && parent[v] == u) {
+						lookahead(v);
+						update(v);
+					}
+				}
+
+				update(u);
+			}
+		}
+
+		return cost;
+	}
+
+	/**
+	 * Sets the lookahead cost of a cell to the cheapest cost of reaching it in one move from a
+	 * neighbour, and its parent to that neighbour.
+	 */
+	private void lookahead(int v)
+	{
+		int x = w.getCellX(v);
+		int y = w.getCellY(v);
+
+		rhs[v] = INFINITY;
+		parent[v] = -1;
+
+		if (w.hasObstacle(x, y)) {
+			return;
+		}
+
+		for (int k = 0; k < 8; k++) {
+			if (!canMove(x, y, DX[k], DY[k])) {
+				continue;
+			}
+
+			int u = w.getCellId(x + DX[k], y + DY[k]);
+			float cand = g[u] + moveCost(DX[k], DY[k]);
+
+			if (cand < rhs[v]) {
+				rhs[v] = cand;
+				parent[v] = u;
+			}
+		}
+
+		if (rhs[v] != INFINITY) {
+			reach(v);
+		}
+	}
+
+	/**
+	 * Puts a cell on the open list with a fresh key if it is locally inconsistent, and takes it off
+	 * otherwise.
+	 */
+	private void update(int u)
+	{
+		if (g[u] != rhs[u]) {
+			float m = Math.min(g[u], rhs[u]);
+			open.add(u, m + heuristic(u, goal) + km, m);
+			metrics.generated(w.getCellX(u), w.getCellY(u));
+			metrics.open(open.size());
+		} else {
+			open.remove(u);
+		}
+	}
+
+	private float heuristic(int u, int v)
+	{
+		probe.setX(w.getCellX(u));
+		probe.setY(w.getCellY(u));
+		target.setX(w.getCellX(v));
+		target.setY(w.getCellY(v));
+		metrics.heuristic();
+
+		return (float) h.heuristic(probe, target);
+	}
+
+	private static boolean less(float a1, float a2, float b1, float b2)
+	{
+		return a1 < b1 || (a1 == b1 && a2 < b2);
+	}
+
+	private List<Point> backtrace(int s, int t)
+	{
+		int length = 1;
+		for (int c = t; c != s; c = parent[c]) {
+			if (c == -1 || length > parent.length) {
+				return new ArrayList<Point>();
+			}
+
+			length++;
+		}
+
+		Point[] points = new Point[length];
+		for (int c = t; length > 0; c = parent[c]) {
+			points[--length] = new Point(w.getCellX(c), w.getCellY(c));
+		}
+
+		List<Point> path = new ArrayList<Point>(points.length);
+		for (Point p : points) {
+			path.add(p);
+		}
+
+		return path;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "D*L";
+	}
+}
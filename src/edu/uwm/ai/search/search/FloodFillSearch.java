@@ -1,19 +1,19 @@
 package edu.uwm.ai.search.search;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.PriorityQueue;
 
 import edu.uwm.ai.search.World;
 import edu.uwm.ai.search.heuristic.Heuristic;
-import edu.uwm.ai.search.util.Node;
+import edu.uwm.ai.search.util.FlowField;
 import edu.uwm.ai.search.util.Point;
 
+/**
+ * Follows the world's flow field from the initial point down to the goal. Each step is a single
+ * lookup, so the cost of a search is the length of the path. The field is shared by every flood
+ * fill search over the world and is only rebuilt when the goal moves. The metrics of a search only
+ * count nodes expanded, and only when the search rebuilt the field.
+ */
 public class FloodFillSearch extends BaseSearchAlgorithm
 {
 
@@ -30,90 +30,50 @@ public class FloodFillSearch extends BaseSearchAlgorithm
 	}
 
 	@Override
-	public SearchResult search(Point initial, Point goal)
+	protected SearchResult doSearch(Point initial, Point goal, SearchMetrics metrics)
 	{
-		final Map<Node, Node> pred = new HashMap<Node, Node>();
-		PriorityQueue<Node> successors = new PriorityQueue<Node>(16, new Comparator<Node>() {
-			@Override
-			public int compare(Node o1, Node o2)
-			{
-				double h1 = w.getCostOfSquare(o1);
-				double h2 = w.getCostOfSquare(o2);
-				// Compare nodes based on the number of moves from the goal.
-				if (h1 < h2) {
-					return -1;
-				} else if (h1 == h2) {
-					return 0;
-				} else {
-					return 1;
-				}
-
+		FlowField field = w.getFlowField();
+		List<Point> path = new ArrayList<Point>();
+
+		synchronized (field) {
+			// The field is normally kept pointing at the player by the world, but rebuild it if it
+			// was built for some other goal.
+			if (field.getGoal() != w.getCellId(goal.getX(), goal.getY())) {
+				metrics.expandedAll(field.update(goal.getX(), goal.getY()));
 			}
-		});
-		Node init = new Node(initial, w.getCostOfSquare(initial), 0);
-		successors.add(init);
-		pred.put(init, null);
-
-		while (!successors.isEmpty()) {
-			Node current = successors.poll();
-			// If I'm looking at the goal, return the search path
-			if (current.equals(goal)) {
-				return new SearchResult(new ArrayList<Point>(backtrace(pred, current)), w.getCostOfSquare(initial) - w.getCostOfSquare(current.getNode()));
+
+			if (!w.isValidPosition(initial) || field.getDistance(initial.getX(), initial.getY()) == -1) {
+				return new SearchResult(path, 0);
 			}
 
-			// Go through all successors, if they aren't in the list of predecessors, update its
-			// cost and add it.
-			List<Node> succNodes = getSuccessors(current);
-			Node trueSuccessor = Collections.min(succNodes, new Comparator<Node>() {
-				@Override
-				public int compare(Node o1, Node o2)
-				{
-					int c1 = w.getCostOfSquare(o1);
-					int c2 = w.getCostOfSquare(o2);
-					// Compare nodes based on the number of moves from the goal.
-					if (c1 < c2) {
-						return -1;
-					} else if (c1 == c2) {
-						double h1 = o1.getCost();
-						double h2 = o2.getCost();
-						for (Node n : backtrace(pred, o1)) {
-							h1 += n.getPathCost();
-						}
-
-						for (Node n : backtrace(pred, o2)) {
-							h2 += n.getPathCost();
-						}
-						if (h1 < h2) {
-							return -1;
-						} else if (h1 == h2) {
-							return 0;
-						} else {
-							return 1;
-						}
-					} else {
-						return 1;
-					}
-
-				}
-			});
-			// Add the lowest-step-cost successor to the map of successors-to-predecessors.
-			pred.put(trueSuccessor, current);
-			successors.add(trueSuccessor);
+			int x = initial.getX();
+			int y = initial.getY();
+			path.add(new Point(x, y));
+
+			for (int k = field.getDirection(x, y); k != -1; k = field.getDirection(x, y)) {
+				x += FlowField.getDirectionX(k);
+				y += FlowField.getDirectionY(k);
+				path.add(new Point(x, y));
+			}
 		}
 
-		return new SearchResult(new ArrayList<Point>(), 0);
+		return new SearchResult(path, path.size() - 1);
 	}
 
-	List<Node> backtrace(Map<Node, Node> predecessors, Node p)
+	/**
+	 * The flow field already holds a path to the goal from every cell, so each start just follows
+	 * it. The field is rebuilt at most once.
+	 */
+	@Override
+	public List<SearchResult> searchMany(List<Point> starts, Point goal)
 	{
-		List<Node> path = new LinkedList<Node>();
+		List<SearchResult> results = new ArrayList<SearchResult>(starts.size());
 
-		while (p != null) {
-			path.add(0, p);
-			p = predecessors.get(p);
+		for (Point p : starts) {
+			results.add(search(p, goal));
 		}
 
-		return path;
+		return results;
 	}
 
 	@Override
@@ -0,0 +1,185 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.search;
+
+import java.util.ArrayList;
+
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.heuristic.Heuristic;
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * Fringe search, which finds the same paths as A* without a priority queue. The open cells are
+ * kept in a single doubly linked list that is swept from front to back against an f threshold.
+ * A cell over the threshold is left where it is for the next sweep (the "later" part of the list),
+ * and a cell under it is expanded and replaced by its successors, which are visited next in the
+ * same sweep (the "now" part). Each sweep raises the threshold to the smallest f value it skipped.
+ * 
+ * Costs, heuristic values and parents live in the calling thread's {@link SearchWorkspace}; the
+ * links of the list are arrays indexed by cell id held by this instance, so an instance runs one
+ * search at a time.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class FringeSearch extends BaseSearchAlgorithm
+{
+	/**
+	 * The link value of a cell that is not on the list.
+	 */
+	private static final int UNLISTED = -1;
+
+	private World w;
+	private Heuristic h;
+
+	private final int[] next;
+	private final int[] prev;
+	private final int head;
+
+	public FringeSearch(World w, Heuristic h)
+	{
+		super(w);
+
+		this.w = w;
+		this.h = h;
+
+		// The last slot is the head of the circular list.
+		this.head = w.getCellCount();
+		this.next = new int[head + 1];
+		this.prev = new int[head + 1];
+	}
+
+	@Override
+	protected synchronized SearchResult doSearch(Point initial, Point goal, SearchMetrics metrics)
+	{
+		if (!w.isValidPosition(initial) || !w.isValidPosition(goal)) {
+			return new SearchResult(new ArrayList<Point>(), 0);
+		}
+
+		SearchWorkspace ws = SearchWorkspace.get(w);
+		ws.reset();
+
+		int start = w.getCellId(initial.getX(), initial.getY());
+		int target = w.getCellId(goal.getX(), goal.getY());
+
+		next[head] = head;
+		prev[head] = head;
+
+		ws.see(start, 0, (float) h.heuristic(initial, goal), -1);
+		insertAfter(head, start);
+		metrics.heuristic();
+		metrics.open(1);
+
+		int listed = 1;
+
+		float limit = ws.getH(start);
+		int cost = 0;
+
+		while (next[head] != head) {
+			float min = Float.POSITIVE_INFINITY;
+			int current = next[head];
+
+			while (current != head) {
+				float f = ws.getG(current) + ws.getH(current);
+
+				if (f > limit) {
+					min = Math.min(min, f);
+					current = next[current];
+					continue;
+				}
+
+				cost++;
+
+				int x = w.getCellX(current);
+				int y = w.getCellY(current);
+				metrics.expanded(x, y);
+
+				if (current == target) {
+					return new SearchResult(ws.backtrace(current), cost);
+				}
+
+				// Successors are inserted straight after the current cell, so going through them
+				// backwards leaves them in their usual order.
+				for (int k = 7; k >= 0; k--) {
+					if (!canMove(x, y, DX[k], DY[k])) {
+						continue;
+					}
+
+					int successor = w.getCellId(x + DX[k], y + DY[k]);
+					float cand = ws.getG(current) + moveCost(DX[k], DY[k]);
+
+					if (!ws.isSeen(successor)) {
+						ws.see(successor, cand, (float) h.heuristic(ws.getProbe(successor), goal), current);
+						metrics.heuristic();
+					} else if (cand < ws.getG(successor)) {
+						ws.relax(successor, cand, current);
+
+						if (next[successor] != UNLISTED) {
+							unlink(successor);
+							listed--;
+						}
+					} else {
+						metrics.duplicate();
+						continue;
+					}
+
+					insertAfter(current, successor);
+					metrics.generated(x + DX[k], y + DY[k]);
+					metrics.open(++listed);
+				}
+
+				int after = next[current];
+				unlink(current);
+				listed--;
+				current = after;
+			}
+
+			limit = min;
+		}
+
+		return new SearchResult(new ArrayList<Point>(), cost);
+	}
+
+	private void insertAfter(int at, int id)
+	{
+		int after = next[at];
+
+		next[at] = id;
+		prev[id] = at;
+		next[id] = after;
+		prev[after] = id;
+	}
+
+	private void unlink(int id)
+	{
+		next[prev[id]] = next[id];
+		prev[next[id]] = prev[id];
+		next[id] = UNLISTED;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "FS";
+	}
+}
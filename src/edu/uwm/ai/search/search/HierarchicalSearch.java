@@ -0,0 +1,257 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.search;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.heuristic.Heuristic;
+import edu.uwm.ai.search.util.IndexedHeap;
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * Hierarchical path-finding A* (HPA*). The start and goal are connected to the entrances of their
+ * clusters in a {@link ClusterGraph}, and A* runs over the entrances alone, which on large maps is
+ * a far smaller graph than the grid. The path found is near optimal.
+ * 
+ * Only the first leg of the returned path is refined into individual cells. The remaining points
+ * are the entrances the path passes through, and each leg is refined as the point before it is
+ * removed from the front of the path, which is how {@link edu.uwm.ai.search.agent.SearchEntity}
+ * walks it. If a leg can no longer be refined because the map has changed, the path ends there.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class HierarchicalSearch extends BaseSearchAlgorithm
+{
+	public static final int DEFAULT_CLUSTER_SIZE = 16;
+
+	private World w;
+	private Heuristic h;
+	private ClusterGraph graph;
+
+	public HierarchicalSearch(World w, Heuristic h)
+	{
+		this(new ClusterGraph(w, DEFAULT_CLUSTER_SIZE), h);
+	}
+
+	public HierarchicalSearch(ClusterGraph graph, Heuristic h)
+	{
+		super(graph.getWorld());
+
+		this.w = graph.getWorld();
+		this.h = h;
+		this.graph = graph;
+	}
+
+	@Override
+	protected SearchResult doSearch(Point initial, Point goal, SearchMetrics metrics)
+	{
+		if (!w.isValidPosition(initial) || !w.isValidPosition(goal)) {
+			return new SearchResult(new ArrayList<Point>(), 0);
+		}
+
+		graph.refresh();
+
+		int start = w.getCellId(initial.getX(), initial.getY());
+		int target = w.getCellId(goal.getX(), goal.getY());
+		int startCluster = graph.getCluster(start);
+		int goalCluster = graph.getCluster(target);
+
+		float[] fromStart = graph.connect(start, target);
+		float[] toGoal = graph.connect(target, start);
+
+		SearchWorkspace ws = SearchWorkspace.get(w);
+		IndexedHeap open = ws.getOpen();
+		ws.reset();
+
+		ws.see(start, 0, (float) h.heuristic(initial, goal), -1);
+		open.add(start, ws.getH(start));
+		metrics.heuristic();
+		metrics.open(open.size());
+
+		int cost = 0;
+		while (!open.isEmpty()) {
+			cost++;
+			int current = open.poll();
+			ws.close(current);
+			metrics.expanded(w.getCellX(current), w.getCellY(current));
+
+			if (current == target) {
+				return new SearchResult(new RefinedPath(graph, w, ws.backtrace(current)), cost);
+			}
+
+			float base = ws.getG(current);
+
+			if (current == start) {
+				int[] cells = graph.getEntrances(startCluster);
+
+				for (int i = 0; i < cells.length; i++) {
+					relax(ws, current, cells[i], base + fromStart[i], goal, metrics);
+				}
+
+				relax(ws, current, target, base + fromStart[cells.length], goal, metrics);
+			}
+
+			int index = graph.getEntranceIndex(current);
+
+			if (index == -1) {
+				continue;
+			}
+
+			int cluster = graph.getCluster(current);
+			int[] cells = graph.getEntrances(cluster);
+
+			for (int i = 0; i < cells.length; i++) {
+				relax(ws, current, cells[i], base + graph.getDistance(cluster, index, i), goal, metrics);
+			}
+
+			for (int slot = 0; slot < 2; slot++) {
+				int partner = graph.getPartner(cluster, index, slot);
+
+				if (partner != -1) {
+					relax(ws, current, partner, base + 1, goal, metrics);
+				}
+			}
+
+			if (cluster == goalCluster) {
+				relax(ws, current, target, base + toGoal[index], goal, metrics);
+			}
+		}
+
+		return new SearchResult(new ArrayList<Point>(), cost);
+	}
+
+	private void relax(SearchWorkspace ws, int current, int next, float cand, Point goal, SearchMetrics metrics)
+	{
+		if (next == current || cand == Float.POSITIVE_INFINITY) {
+			return;
+		}
+
+		if (ws.isClosed(next)) {
+			metrics.duplicate();
+			return;
+		}
+
+		if (!ws.isSeen(next)) {
+			ws.see(next, cand, (float) h.heuristic(ws.getProbe(next), goal), current);
+			metrics.heuristic();
+		} else if (cand < ws.getG(next)) {
+			ws.relax(next, cand, current);
+		} else {
+			metrics.duplicate();
+			return;
+		}
+
+		ws.getOpen().add(next, cand + ws.getH(next));
+		metrics.generated(w.getCellX(next), w.getCellY(next));
+		metrics.open(ws.getOpen().size());
+	}
+
+	@Override
+	public String toString()
+	{
+		return "HPA";
+	}
+
+	/**
+	 * A path whose legs between abstract waypoints are refined into cells only when they are
+	 * reached. The front of the path is always a refined cell, so removing points from the front
+	 * walks the path one step at a time, while the later points describe the rest of the route.
+	 */
+	static class RefinedPath extends AbstractList<Point>
+	{
+		private final ClusterGraph graph;
+		private final World w;
+		private final List<Point> waypoints;
+		private int next;
+
+		private List<Point> refined = new ArrayList<Point>();
+		private int head;
+
+		RefinedPath(ClusterGraph graph, World w, List<Point> waypoints)
+		{
+			this.graph = graph;
+			this.w = w;
+			this.waypoints = waypoints;
+
+			refined.add(waypoints.get(0));
+			next = 1;
+		}
+
+		@Override
+		public Point get(int index)
+		{
+			int pending = refined.size() - head;
+			return index < pending ? refined.get(head + index) : waypoints.get(next + index - pending);
+		}
+
+		@Override
+		public int size()
+		{
+			return refined.size() - head + waypoints.size() - next;
+		}
+
+		@Override
+		public Point remove(int index)
+		{
+			if (index != 0) {
+				throw new UnsupportedOperationException("Points can only be removed from the front of the path.");
+			}
+
+			Point p = refined.get(head++);
+
+			if (head == refined.size()) {
+				refined.clear();
+				head = 0;
+
+				if (next < waypoints.size()) {
+					Point to = waypoints.get(next++);
+					List<Point> leg = graph.refine(w.getCellId(p.getX(), p.getY()), w.getCellId(to.getX(), to.getY()));
+
+					if (leg == null) {
+						// The map has changed since the path was found; stop here and let the
+						// entity search again.
+						next = waypoints.size();
+					} else {
+						refined = leg;
+					}
+				}
+			}
+
+			modCount++;
+			return p;
+		}
+
+		@Override
+		public void clear()
+		{
+			refined.clear();
+			head = 0;
+			next = waypoints.size();
+			modCount++;
+		}
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.search;
+
+import java.util.ArrayList;
+
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.heuristic.Heuristic;
+import edu.uwm.ai.search.util.IndexedHeap;
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * An A* search that keeps all of its bookkeeping in arrays indexed by cell id. Path costs and
+ * parents are stored per cell rather than recomputed from a backtrace, and the open list is an
+ * indexed heap so a cheaper route to an open cell lowers its key in place. The arrays live in the
+ * calling thread's {@link SearchWorkspace}, so repeated searches only allocate the path returned.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class IndexedAStarSearch extends BaseSearchAlgorithm
+{
+	private World w;
+	private Heuristic h;
+
+	public IndexedAStarSearch(World w, Heuristic h)
+	{
+		super(w);
+
+		this.w = w;
+		this.h = h;
+	}
+
+	@Override
+	protected SearchResult doSearch(Point initial, Point goal, SearchMetrics metrics)
+	{
+		if (!w.isValidPosition(initial) || !w.isValidPosition(goal)) {
+			return new SearchResult(new ArrayList<Point>(), 0);
+		}
+
+		SearchWorkspace ws = SearchWorkspace.get(w);
+		IndexedHeap open = ws.getOpen();
+		ws.reset();
+
+		int start = w.getCellId(initial.getX(), initial.getY());
+		int target = w.getCellId(goal.getX(), goal.getY());
+
+		ws.see(start, 0, (float) h.heuristic(initial, goal), -1);
+		open.add(start, ws.getH(start));
+		metrics.heuristic();
+		metrics.open(open.size());
+
+		int cost = 0;
+		while (!open.isEmpty()) {
+			cost++;
+			int current = open.poll();
+			ws.close(current);
+
+			int x = w.getCellX(current);
+			int y = w.getCellY(current);
+			metrics.expanded(x, y);
+
+			if (current == target) {
+				return new SearchResult(ws.backtrace(current), cost);
+			}
+
+			for (int k = 0; k < 8; k++) {
+				if (!canMove(x, y, DX[k], DY[k])) {
+					continue;
+				}
+
+				int successor = w.getCellId(x + DX[k], y + DY[k]);
+
+				if (ws.isClosed(successor)) {
+					metrics.duplicate();
+					continue;
+				}
+
+				float cand = ws.getG(current) + moveCost(DX[k], DY[k]);
+
+				if (!ws.isSeen(successor)) {
+					ws.see(successor, cand, (float) h.heuristic(ws.getProbe(successor), goal), current);
+					metrics.heuristic();
+				} else if (cand < ws.getG(successor)) {
+					ws.relax(successor, cand, current);
+				} else {
+					metrics.duplicate();
+					continue;
+				}
+
+				open.add(successor, cand + ws.getH(successor));
+				metrics.generated(x + DX[k], y + DY[k]);
+				metrics.open(open.size());
+			}
+		}
+
+		return new SearchResult(new ArrayList<Point>(), cost);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "IA*";
+	}
+}
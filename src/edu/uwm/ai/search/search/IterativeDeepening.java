@@ -42,7 +42,7 @@ public class IterativeDeepening extends BaseSearchAlgorithm
 	}
 
 	@Override
-	public SearchResult search(Point initial, Point goal)
+	protected SearchResult doSearch(Point initial, Point goal, SearchMetrics metrics)
 	{
 		Map<Point, Point> pred = new HashMap<Point, Point>();
 		List<WrappedPoint> successors = new ArrayList<WrappedPoint>();
@@ -58,6 +58,7 @@ public class IterativeDeepening extends BaseSearchAlgorithm
 
 			successors.add(new WrappedPoint(initial, 0));
 			pred.put(initial, null);
+			metrics.open(successors.size());
 
 			while (!successors.isEmpty()) {
 				cost++;
@@ -67,10 +68,16 @@ public class IterativeDeepening extends BaseSearchAlgorithm
 					break;
 				}
 
+				metrics.expanded(current.p.getX(), current.p.getY());
+
 				for (Point successor : getSuccessors(current.p)) {
 					if (!hasKey(pred, successor)) {
 						pred.put(successor, current.p);
 						successors.add(new WrappedPoint(successor, current.depth + 1));
+						metrics.generated(successor.getX(), successor.getY());
+						metrics.open(successors.size());
+					} else {
+						metrics.duplicate();
 					}
 
 					if (successor.equals(goal)) {
@@ -0,0 +1,284 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.heuristic.Heuristic;
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * Iterative deepening A* (IDA*). Each iteration is a depth first search that cuts off any cell
+ * whose f value exceeds a threshold, starting from the heuristic estimate of the start and raising
+ * the threshold to the smallest f value cut off by the previous iteration. With an admissible
+ * heuristic the first path found is optimal.
+ * 
+ * The search keeps nothing but an explicit stack of the current path, so its memory grows with
+ * the length of the path rather than the size of the world. On its own it only avoids stepping
+ * straight back to the previous cell, and on open maps it revisits the same cells along many
+ * different routes. An optional transposition table of fixed size remembers the cheapest cost each
+ * cell was reached with during the current iteration and prunes any costlier visit. Entries are
+ * stamped with the iteration, so the table is never cleared, and colliding cells simply replace
+ * each other. Unless told otherwise the search keeps a table of {@link #DEFAULT_TABLE_SIZE}
+ * entries, without which it takes time exponential in the length of the path.
+ * 
+ * The stacks and the table are kept per thread and reused from one search to the next, so one
+ * instance may be searched from several threads at once.
+ * 
+ * IDA* cannot tell that a goal is unreachable until the threshold passes the cost of the longest
+ * possible path, so it is best kept to goals known to be reachable.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class IterativeDeepeningAStar extends BaseSearchAlgorithm
+{
+	public static final int DEFAULT_TABLE_SIZE = 1 << 16;
+
+	private World w;
+	private Heuristic h;
+
+	private final int tableSize;
+	private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue()
+		{
+			return new Scratch(tableSize);
+		}
+	};
+
+	public IterativeDeepeningAStar(World w, Heuristic h)
+	{
+		this(w, h, DEFAULT_TABLE_SIZE);
+	}
+
+	/**
+	 * @param tableSize
+	 *            The number of entries in the transposition table, rounded up to a power of two, or
+	 *            zero to search without one
+	 */
+	public IterativeDeepeningAStar(World w, Heuristic h, int tableSize)
+	{
+		super(w);
+
+		this.w = w;
+		this.h = h;
+
+		this.tableSize = tableSize <= 1 ? Math.max(0, tableSize) : Integer.highestOneBit(tableSize - 1) << 1;
+	}
+
+	@Override
+	protected SearchResult doSearch(Point initial, Point goal, SearchMetrics metrics)
+	{
+		if (!w.isValidPosition(initial) || !w.isValidPosition(goal)) {
+			return new SearchResult(new ArrayList<Point>(), 0);
+		}
+
+		int start = w.getCellId(initial.getX(), initial.getY());
+		int target = w.getCellId(goal.getX(), goal.getY());
+		Point probe = new Point(0, 0);
+
+		Scratch sc = scratch.get();
+		int[] cells = sc.cells;
+		float[] costs = sc.costs;
+		byte[] moves = sc.moves;
+
+		// No optimal path can cost more than visiting every cell with the dearest move. Past that,
+		// the threshold only keeps rising because of routes that loop back on themselves.
+		float limit = w.getCellCount() * (float) Math.max(1, diagCost);
+		float bound = (float) h.heuristic(initial, goal);
+		int cost = 0;
+		metrics.heuristic();
+
+		while (bound <= limit) {
+			float next = Float.POSITIVE_INFINITY;
+			sc.nextIteration();
+
+			int depth = 0;
+			cells[0] = start;
+			costs[0] = 0;
+			moves[0] = 0;
+			sc.record(start, 0);
+
+			while (depth >= 0) {
+				int current = cells[depth];
+
+				if (moves[depth] == 0) {
+					cost++;
+
+					probe.setX(w.getCellX(current));
+					probe.setY(w.getCellY(current));
+					metrics.expanded(probe.getX(), probe.getY());
+					metrics.heuristic();
+					float f = costs[depth] + (float) h.heuristic(probe, goal);
+
+					if (f > bound) {
+						next = Math.min(next, f);
+						depth--;
+						continue;
+					}
+
+					if (current == target) {
+						List<Point> path = new ArrayList<Point>(depth + 1);
+						for (int i = 0; i <= depth; i++) {
+							path.add(new Point(w.getCellX(cells[i]), w.getCellY(cells[i])));
+						}
+
+						return new SearchResult(path, cost);
+					}
+				}
+
+				if (moves[depth] == 8) {
+					depth--;
+					continue;
+				}
+
+				int k = moves[depth]++;
+				int x = w.getCellX(current);
+				int y = w.getCellY(current);
+
+				if (!canMove(x, y, DX[k], DY[k])) {
+					continue;
+				}
+
+				int successor = w.getCellId(x + DX[k], y + DY[k]);
+
+				if (depth > 0 && successor == cells[depth - 1]) {
+					continue;
+				}
+
+				float g = costs[depth] + moveCost(DX[k], DY[k]);
+
+				if (!sc.record(successor, g)) {
+					metrics.duplicate();
+					continue;
+				}
+
+				if (++depth == cells.length) {
+					cells = sc.cells = grow(cells);
+					costs = sc.costs = grow(costs);
+					moves = sc.moves = grow(moves);
+				}
+
+				cells[depth] = successor;
+				costs[depth] = g;
+				moves[depth] = 0;
+				metrics.generated(x + DX[k], y + DY[k]);
+				metrics.open(depth + 1);
+			}
+
+			bound = next;
+		}
+
+		return new SearchResult(new ArrayList<Point>(), cost);
+	}
+
+	private static int[] grow(int[] a)
+	{
+		int[] grown = new int[a.length * 2];
+		System.arraycopy(a, 0, grown, 0, a.length);
+		return grown;
+	}
+
+	private static float[] grow(float[] a)
+	{
+		float[] grown = new float[a.length * 2];
+		System.arraycopy(a, 0, grown, 0, a.length);
+		return grown;
+	}
+
+	private static byte[] grow(byte[] a)
+	{
+		byte[] grown = new byte[a.length * 2];
+		System.arraycopy(a, 0, grown, 0, a.length);
+		return grown;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "IDA*";
+	}
+
+	/**
+	 * The stacks and transposition table of the searches made by one thread.
+	 */
+	private static class Scratch
+	{
+		int[] cells = new int[64];
+		float[] costs = new float[64];
+		byte[] moves = new byte[64];
+
+		private final int[] tableKeys;
+		private final float[] tableCosts;
+		private final int[] tableStamps;
+		private final int tableMask;
+		private int iteration;
+
+		Scratch(int tableSize)
+		{
+			this.tableKeys = new int[tableSize];
+			this.tableCosts = new float[tableSize];
+			this.tableStamps = new int[tableSize];
+			this.tableMask = tableSize - 1;
+		}
+
+		void nextIteration()
+		{
+			if (++iteration == Integer.MAX_VALUE) {
+				for (int i = 0; i < tableStamps.length; i++) {
+					tableStamps[i] = 0;
+				}
+
+				iteration = 1;
+			}
+		}
+
+		/**
+		 * Records that a cell was reached with the given cost during this iteration.
+		 * 
+		 * @return False if the table already holds a cost for the cell this iteration that is no
+		 *         greater, in which case the cell need not be searched again.
+		 */
+		boolean record(int id, float g)
+		{
+			if (tableKeys.length == 0) {
+				return true;
+			}
+
+			int hash = id * 0x9E3779B9;
+			int slot = (hash ^ (hash >>> 16)) & tableMask;
+
+			if (tableStamps[slot] == iteration && tableKeys[slot] == id && tableCosts[slot] <= g) {
+				return false;
+			}
+
+			tableStamps[slot] = iteration;
+			tableKeys[slot] = id;
+			tableCosts[slot] = g;
+			return true;
+		}
+	}
+}
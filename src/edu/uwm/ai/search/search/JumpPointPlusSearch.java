@@ -0,0 +1,101 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.search;
+
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.heuristic.Heuristic;
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * Jump point search over a precomputed {@link JumpTable} (JPS+). Instead of scanning the grid, each
+ * jump is a single table lookup. Since the table knows nothing about the goal, a jump towards the
+ * goal stops short at the goal itself, or, on a diagonal, at the first cell level with the goal's
+ * row or column, from which a straight jump can reach it.
+ * 
+ * The search itself is that of {@link BaseJumpPointSearch}. Jump tables are expensive to build, so
+ * one table can be shared by every search over the same world. The table keeps itself up to date
+ * as obstacles are added.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class JumpPointPlusSearch extends BaseJumpPointSearch
+{
+	private JumpTable table;
+
+	public JumpPointPlusSearch(World w, Heuristic h)
+	{
+		this(new JumpTable(w), h);
+	}
+
+	public JumpPointPlusSearch(JumpTable table, Heuristic h)
+	{
+		super(table.getWorld(), h);
+
+		this.table = table;
+	}
+
+	/**
+	 * Looks up the jump from a cell in the given direction, stopping short at the goal or level
+	 * with it.
+	 */
+	@Override
+	protected int jump(int current, int x, int y, int dx, int dy, Point goal)
+	{
+		int distance = table.getDistance(current, moveIndex(dx, dy));
+		int reach = Math.abs(distance);
+		int gx = goal.getX() - x;
+		int gy = goal.getY() - y;
+
+		int steps;
+		if (dx != 0 && dy != 0) {
+			int toGoal = Math.min(Math.abs(gx), Math.abs(gy));
+
+			if (Integer.signum(gx) == dx && Integer.signum(gy) == dy && toGoal <= reach) {
+				steps = toGoal;
+			} else if (distance > 0) {
+				steps = distance;
+			} else {
+				return -1;
+			}
+		} else {
+			int toGoal = dx != 0 ? (gy == 0 ? gx * dx : -1) : (gx == 0 ? gy * dy : -1);
+
+			if (toGoal > 0 && toGoal <= reach) {
+				steps = toGoal;
+			} else if (distance > 0) {
+				steps = distance;
+			} else {
+				return -1;
+			}
+		}
+
+		return w.getCellId(x + steps * dx, y + steps * dy);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "JPS+";
+	}
+}
@@ -53,7 +53,7 @@ public class JumpPointSearch extends BaseSearchAlgorithm
 	}
 
 	@Override
-	public SearchResult search(Point initial, final Point goal)
+	protected SearchResult doSearch(Point initial, final Point goal, SearchMetrics metrics)
 	{
 		final Map<Node, Node> pred = new HashMap<Node, Node>();
 
@@ -77,14 +77,17 @@ public class JumpPointSearch extends BaseSearchAlgorithm
 		});
 
 		Node init = new Node(initial, h.heuristic(initial, goal), 0);
+		metrics.heuristic();
 
 		successors.add(init);
 		pred.put(init, null);
+		metrics.open(successors.size());
 
 		int cost = 0;
 		while (!successors.isEmpty()) {
 			cost++;
 			Node current = successors.poll();
+			metrics.expanded(current.getX(), current.getY());
 
 			if (current.equals(goal)) {
 				return new SearchResult(fill(backtrace(pred, current)), cost);
@@ -93,9 +96,14 @@ public class JumpPointSearch extends BaseSearchAlgorithm
 			for (Node successor : getSuccessors(current, pred.get(current), pred, goal)) {
 				if (!hasKey(pred, successor)) {
 					successor.setCost(h.heuristic(successor, goal));
+					metrics.heuristic();
 
 					pred.put(successor, current);
 					successors.add(successor);
+					metrics.generated(successor.getX(), successor.getY());
+					metrics.open(successors.size());
+				} else {
+					metrics.duplicate();
 				}
 			}
 		}
@@ -0,0 +1,285 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.search;
+
+import edu.uwm.ai.search.DirtyRegion;
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.WorldChange;
+import edu.uwm.ai.search.WorldListener;
+import edu.uwm.ai.search.util.BitGrid;
+
+/**
+ * Precomputed jump distances for every cell of a world in each of the eight directions, as used by
+ * {@link JumpPointPlusSearch}. A positive distance is the number of steps to the next jump point in
+ * that direction. Zero or a negative distance means there is no jump point before a wall, and its
+ * magnitude is the number of steps that can be taken before hitting the wall.
+ * 
+ * Jump points follow the same rules as {@link BitJumpPointSearch}, except that the goal is not
+ * known in advance; the search checks for it separately. The table listens to its world and, when
+ * cells change, recomputes only the rows and columns around them and the diagonals whose distances
+ * actually change.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class JumpTable implements WorldListener
+{
+	private final World w;
+	private final BitGrid grid;
+	private final int width;
+	private final int height;
+	private final short[] table;
+
+	public JumpTable(World w)
+	{
+		if (w.getWidth() > Short.MAX_VALUE || w.getHeight() > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("World is too large for a jump table.");
+		}
+
+		this.w = w;
+		this.grid = w.getGrid();
+		this.width = w.getWidth();
+		this.height = w.getHeight();
+		this.table = new short[w.getCellCount() * 8];
+
+		for (int y = 0; y < height; y++) {
+			computeRow(y);
+		}
+
+		for (int x = 0; x < width; x++) {
+			computeColumn(x);
+		}
+
+		for (int k = 4; k < 8; k++) {
+			computeDiagonals(k);
+		}
+
+		w.addListener(this);
+	}
+
+	public World getWorld()
+	{
+		return w;
+	}
+
+	/**
+	 * Returns the jump distance from a cell in a direction.
+	 * 
+	 * @param id
+	 *            The id of the cell
+	 * @param k
+	 *            The index of the direction in {@link BaseSearchAlgorithm#DX} and
+	 *            {@link BaseSearchAlgorithm#DY}
+	 * @return The number of steps to the next jump point if positive, otherwise the negated number of
+	 *         steps to the wall.
+	 */
+	public int getDistance(int id, int k)
+	{
+		return table[id * 8 + k];
+	}
+
+	private int get(int x, int y, int k)
+	{
+		return table[(y * width + x) * 8 + k];
+	}
+
+	private void set(int x, int y, int k, int distance)
+	{
+		table[(y * width + x) * 8 + k] = (short) distance;
+	}
+
+	private void computeRow(int y)
+	{
+		for (int x = width - 1; x >= 0; x--) {
+			set(x, y, 3, straight(x, y, 1, 0, 3));
+		}
+
+		for (int x = 0; x < width; x++) {
+			set(x, y, 2, straight(x, y, -1, 0, 2));
+		}
+	}
+
+	private void computeColumn(int x)
+	{
+		for (int y = height - 1; y >= 0; y--) {
+			set(x, y, 1, straight(x, y, 0, 1, 1));
+		}
+
+		for (int y = 0; y < height; y++) {
+			set(x, y, 0, straight(x, y, 0, -1, 0));
+		}
+	}
+
+	private void computeDiagonals(int k)
+	{
+		int dy = BaseSearchAlgorithm.DY[k];
+
+		for (int y = dy > 0 ? height - 1 : 0; y >= 0 && y < height; y -= dy) {
+			for (int x = 0; x < width; x++) {
+				set(x, y, k, diagonal(x, y, k));
+			}
+		}
+	}
+
+	/**
+	 * Computes the straight jump distance of a cell from that of the next cell in the same
+	 * direction, which must already be up to date.
+	 */
+	private int straight(int x, int y, int dx, int dy, int k)
+	{
+		int nx = x + dx;
+		int ny = y + dy;
+
+		if (grid.isBlocked(x, y) || grid.isBlocked(nx, ny)) {
+			return 0;
+		}
+
+		if (dx != 0) {
+			if ((grid.isBlocked(nx, ny + 1) && !grid.isBlocked(nx + dx, ny + 1)) || (grid.isBlocked(nx, ny - 1) && !grid.isBlocked(nx + dx, ny - 1))) {
+				return 1;
+			}
+		} else {
+			if ((grid.isBlocked(nx + 1, ny) && !grid.isBlocked(nx + 1, ny + dy)) || (grid.isBlocked(nx - 1, ny) && !grid.isBlocked(nx - 1, ny + dy))) {
+				return 1;
+			}
+		}
+
+		int next = get(nx, ny, k);
+		return next > 0 ? next + 1 : next - 1;
+	}
+
+	/**
+	 * Computes the diagonal jump distance of a cell from the tables of the next cell along the
+	 * diagonal, which must already be up to date.
+	 */
+	private int diagonal(int x, int y, int k)
+	{
+		int dx = BaseSearchAlgorithm.DX[k];
+		int dy = BaseSearchAlgorithm.DY[k];
+		int nx = x + dx;
+		int ny = y + dy;
+
+		if (grid.isBlocked(x, y) || grid.isBlocked(nx, ny) || (grid.isBlocked(nx, y) && grid.isBlocked(x, ny))) {
+			return 0;
+		}
+
+		if ((!grid.isBlocked(nx - dx, ny + dy) && grid.isBlocked(nx - dx, ny)) || (!grid.isBlocked(nx + dx, ny - dy) && grid.isBlocked(nx, ny - dy))) {
+			return 1;
+		}
+
+		if (get(nx, ny, BaseSearchAlgorithm.moveIndex(dx, 0)) > 0 || get(nx, ny, BaseSearchAlgorithm.moveIndex(0, dy)) > 0) {
+			return 1;
+		}
+
+		int next = get(nx, ny, k);
+		return next > 0 ? next + 1 : next - 1;
+	}
+
+	@Override
+	public void worldChanged(WorldChange change)
+	{
+		DirtyRegion region = change.getRegion();
+
+		// Straight distances only depend on the line they run along and the two lines beside it,
+		// so each such line is recomputed once however many of its cells changed.
+		boolean[] rows = new boolean[height];
+		boolean[] columns = new boolean[width];
+
+		for (int c = 0; c < region.size(); c++) {
+			int i = region.getX(c);
+			int j = region.getY(c);
+
+			for (int y = Math.max(0, j - 1); y <= Math.min(height - 1, j + 1); y++) {
+				rows[y] = true;
+			}
+
+			for (int x = Math.max(0, i - 1); x <= Math.min(width - 1, i + 1); x++) {
+				columns[x] = true;
+			}
+		}
+
+		for (int y = 0; y < height; y++) {
+			if (rows[y]) {
+				computeRow(y);
+			}
+		}
+
+		for (int x = 0; x < width; x++) {
+			if (columns[x]) {
+				computeColumn(x);
+			}
+		}
+
+		// Each changed cell costs about three rows and three columns of diagonal updates, so past a
+		// certain size of batch it is cheaper to recompute the diagonals outright.
+		boolean rebuild = (long) region.size() * 3 * (width + height) >= (long) width * height;
+
+		for (int k = 4; k < 8; k++) {
+			if (rebuild) {
+				computeDiagonals(k);
+			} else {
+				for (int c = 0; c < region.size(); c++) {
+					updateDiagonals(k, region.getX(c), region.getY(c));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Recomputes the diagonal distances in one direction after the cell (i, j) changed. Only cells
+	 * in the three rows and columns around the cell can change by themselves; any other cell only
+	 * changes if the next cell along its diagonal did. So each of those cells is recomputed, furthest
+	 * along the diagonal first, and from each the walk continues backwards along the diagonal until a
+	 * distance comes out unchanged.
+	 */
+	private void updateDiagonals(int k, int i, int j)
+	{
+		int dx = BaseSearchAlgorithm.DX[k];
+		int dy = BaseSearchAlgorithm.DY[k];
+
+		for (int y = dy > 0 ? height - 1 : 0; y >= 0 && y < height; y -= dy) {
+			boolean band = Math.abs(y - j) <= 1;
+			int from = band ? 0 : Math.max(0, i - 1);
+			int to = band ? width - 1 : Math.min(width - 1, i + 1);
+
+			for (int x = from; x <= to; x++) {
+				set(x, y, k, diagonal(x, y, k));
+
+				int ux = x - dx;
+				int uy = y - dy;
+
+				while (ux >= 0 && uy >= 0 && ux < width && uy < height && Math.abs(uy - j) > 1 && Math.abs(ux - i) > 1) {
+					int distance = diagonal(ux, uy, k);
+
+					if (distance == get(ux, uy, k)) {
+						break;
+					}
+
+					set(ux, uy, k, distance);
+					ux -= dx;
+					uy -= dy;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,236 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.heuristic.Heuristic;
+import edu.uwm.ai.search.util.IndexedHeap;
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * An A* search that can be suspended and resumed. It works like {@link IndexedAStarSearch}, but on
+ * a {@link SearchWorkspace} of its own rather than the calling thread's, so that nothing another
+ * search does between two steps can disturb it. Each instance holds one search at a time, and
+ * costs a workspace's worth of memory.
+ * 
+ * Until the goal is found, the best path so far is the one to the expanded cell with the smallest
+ * heuristic value, i.e. the cell that looks closest to the goal.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class ResumableAStarSearch extends BaseSearchAlgorithm implements ResumableSearch
+{
+	/**
+	 * The number of expansions between two looks at the clock.
+	 */
+	private static final int CLOCK_MASK = 63;
+
+	private World w;
+	private Heuristic h;
+
+	private final SearchWorkspace ws;
+	private Point goal;
+	private int target;
+	private int best;
+	private int cost;
+	private boolean done;
+	private SearchMetrics metrics;
+
+	public ResumableAStarSearch(World w, Heuristic h)
+	{
+		super(w);
+
+		this.w = w;
+		this.h = h;
+		this.ws = new SearchWorkspace(w);
+		this.target = -1;
+		this.done = true;
+		this.metrics = newMetrics();
+	}
+
+	@Override
+	protected synchronized SearchResult doSearch(Point initial, Point goal, SearchMetrics metrics)
+	{
+		begin(initial, goal, metrics);
+		advance(Integer.MAX_VALUE, Long.MAX_VALUE);
+		return result();
+	}
+
+	@Override
+	public synchronized void start(Point initial, Point goal)
+	{
+		begin(initial, goal, newMetrics());
+	}
+
+	private void begin(Point initial, Point goal, SearchMetrics metrics)
+	{
+		ws.reset();
+
+		this.metrics = metrics;
+
+		this.goal = new Point(goal);
+		this.best = -1;
+		this.cost = 0;
+
+		// Searches begun by start() do not go through search(Point, Point), so check the regions here.
+		if (!w.isReachable(initial, goal)) {
+			target = -1;
+			done = true;
+			return;
+		}
+
+		int start = w.getCellId(initial.getX(), initial.getY());
+		target = w.getCellId(goal.getX(), goal.getY());
+		done = false;
+
+		ws.see(start, 0, (float) h.heuristic(initial, goal), -1);
+		ws.getOpen().add(start, ws.getH(start));
+		metrics.heuristic();
+		metrics.open(1);
+	}
+
+	/**
+	 * Advances the search, adding the time taken and memory allocated to the metrics of the search.
+	 */
+	@Override
+	public synchronized int step(int maxExpansions, long deadline)
+	{
+		if (done) {
+			return 0;
+		}
+
+		metrics.start();
+		int expanded = advance(maxExpansions, deadline);
+		metrics.stop();
+
+		return expanded;
+	}
+
+	private int advance(int maxExpansions, long deadline)
+	{
+		IndexedHeap open = ws.getOpen();
+
+		int expanded = 0;
+		while (!done && expanded < maxExpansions) {
+			if (open.isEmpty()) {
+				done = true;
+				break;
+			}
+
+			if ((expanded & CLOCK_MASK) == 0 && deadline != Long.MAX_VALUE && System.nanoTime() >= deadline) {
+				break;
+			}
+
+			expanded++;
+			int current = open.poll();
+			ws.close(current);
+
+			if (best == -1 || ws.getH(current) < ws.getH(best)) {
+				best = current;
+			}
+
+			int x = w.getCellX(current);
+			int y = w.getCellY(current);
+			metrics.expanded(x, y);
+
+			if (current == target) {
+				done = true;
+				break;
+			}
+
+			for (int k = 0; k < 8; k++) {
+				if (!canMove(x, y, DX[k], DY[k])) {
+					continue;
+				}
+
+				int successor = w.getCellId(x + DX[k], y + DY[k]);
+
+				if (ws.isClosed(successor)) {
+					metrics.duplicate();
+					continue;
+				}
+
+				float cand = ws.getG(current) + moveCost(DX[k], DY[k]);
+
+				if (!ws.isSeen(successor)) {
+					ws.see(successor, cand, (float) h.heuristic(ws.getProbe(successor), goal), current);
+					metrics.heuristic();
+				} else if (cand < ws.getG(successor)) {
+					ws.relax(successor, cand, current);
+				} else {
+					metrics.duplicate();
+					continue;
+				}
+
+				open.add(successor, cand + ws.getH(successor));
+				metrics.generated(x + DX[k], y + DY[k]);
+				metrics.open(open.size());
+			}
+		}
+
+		cost += expanded;
+		return expanded;
+	}
+
+	@Override
+	public synchronized boolean isDone()
+	{
+		return done;
+	}
+
+	/**
+	 * Returns the outcome of the current search, with a copy of its metrics so far.
+	 */
+	@Override
+	public synchronized SearchResult getResult()
+	{
+		SearchResult result = result();
+		result.setMetrics(new SearchMetrics(metrics));
+		return result;
+	}
+
+	private SearchResult result()
+	{
+		if (done) {
+			// No goal has been set before the first search, or when the goal cannot be reached.
+			if (target >= 0 && ws.isClosed(target)) {
+				return new SearchResult(ws.backtrace(target), cost);
+			}
+
+			return new SearchResult(new ArrayList<Point>(), cost);
+		}
+
+		List<Point> path = best == -1 ? new ArrayList<Point>() : ws.backtrace(best);
+		return new SearchResult(path, cost);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "RA*";
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.search;
+
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * A search that can be run a little at a time. A search is begun with {@link #start(Point, Point)}
+ * and advanced by calls to {@link #step(int, long)}, each bounded by a number of expansions and a
+ * deadline, until {@link #isDone()}. The search keeps its state between steps, so it can be
+ * suspended at the end of one frame and resumed in the next.
+ * 
+ * The world must not change while a search is suspended.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public interface ResumableSearch extends SearchAlgorithm
+{
+	/**
+	 * Begins a new search, abandoning any search that was suspended.
+	 * 
+	 * @param initial
+	 *            The start point
+	 * @param goal
+	 *            The goal point
+	 */
+	public void start(Point initial, Point goal);
+
+	/**
+	 * Advances the current search.
+	 * 
+	 * @param maxExpansions
+	 *            The largest number of nodes to expand
+	 * @param deadline
+	 *            The value of {@link System#nanoTime()} at which to suspend the search, or
+	 *            {@link Long#MAX_VALUE} for no time limit
+	 * @return The number of nodes expanded.
+	 */
+	public int step(int maxExpansions, long deadline);
+
+	/**
+	 * Determines whether the current search has either found the goal or shown it to be
+	 * unreachable.
+	 */
+	public boolean isDone();
+
+	/**
+	 * Returns the outcome of the current search. Once the search is done this is its final result.
+	 * Before then, the path leads from the start to the most promising cell found so far and may
+	 * not reach the goal. In both cases the cost is the number of nodes expanded since the search
+	 * was started.
+	 */
+	public SearchResult getResult();
+}
@@ -22,6 +22,8 @@
 
 package edu.uwm.ai.search.search;
 
+import java.util.List;
+
 import edu.uwm.ai.search.util.Point;
 
 /**
@@ -31,4 +33,15 @@ import edu.uwm.ai.search.util.Point;
 public interface SearchAlgorithm
 {
 	public SearchResult search(Point initial, Point goal);
+
+	/**
+	 * Finds a path from each of several points to the same goal.
+	 * 
+	 * @param starts
+	 *            The points to find paths from
+	 * @param goal
+	 *            The point every path leads to
+	 * @return One result per start, in the same order as the starts.
+	 */
+	public List<SearchResult> searchMany(List<Point> starts, Point goal);
 }
@@ -0,0 +1,48 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.search;
+
+/**
+ * Receives the cells a search works on as it goes, e.g. to draw the search or to count how often
+ * each cell is touched. A listener is called on the thread running the search, in the middle of
+ * the search's inner loop, so it should return quickly.
+ * 
+ * A search with no listener pays for a single null check per event.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public interface SearchListener
+{
+	/**
+	 * Called when a cell is taken off the open list (or its equivalent) and its successors are
+	 * about to be generated.
+	 */
+	public void expanded(int x, int y);
+
+	/**
+	 * Called when a cell is reached for the first time or by a cheaper route, and so is added to
+	 * the open list (or its equivalent).
+	 */
+	public void generated(int x, int y);
+}
@@ -0,0 +1,204 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.search;
+
+import edu.uwm.ai.search.util.Allocations;
+
+/**
+ * What a single search did: how many nodes it expanded and generated, how many successors it threw
+ * away as no better than a route it already knew, the largest its open list grew, how often it
+ * called its heuristic, and how long it took and how much it allocated. The counts mean the same
+ * thing for every algorithm, unlike {@link SearchResult#getNumberNodesExpanded()}; an algorithm that
+ * has no open list or heuristic reports zero for them.
+ * 
+ * The counters are updated by the algorithms of this package as they search, and passed on to the
+ * {@link SearchListener} of the algorithm if it has one.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class SearchMetrics
+{
+	private final SearchListener listener;
+
+	private int expanded;
+	private int generated;
+	private int duplicates;
+	private int peakOpen;
+	private int heuristicCalls;
+
+	private long nanos;
+	private long allocatedBytes;
+	private long startNanos;
+	private long startBytes;
+
+	SearchMetrics(SearchListener listener)
+	{
+		this.listener = listener;
+	}
+
+	/**
+	 * Creates a copy of the given metrics, which does not pass anything on to a listener.
+	 */
+	public SearchMetrics(SearchMetrics other)
+	{
+		this.listener = null;
+		this.expanded = other.expanded;
+		this.generated = other.generated;
+		this.duplicates = other.duplicates;
+		this.peakOpen = other.peakOpen;
+		this.heuristicCalls = other.heuristicCalls;
+		this.nanos = other.nanos;
+		this.allocatedBytes = other.allocatedBytes;
+	}
+
+	public int getNodesExpanded()
+	{
+		return expanded;
+	}
+
+	public int getNodesGenerated()
+	{
+		return generated;
+	}
+
+	/**
+	 * Returns the number of successors that were skipped because they were closed already or
+	 * could not be reached more cheaply than before.
+	 */
+	public int getDuplicatesSkipped()
+	{
+		return duplicates;
+	}
+
+	public int getPeakOpenSize()
+	{
+		return peakOpen;
+	}
+
+	public int getHeuristicCalls()
+	{
+		return heuristicCalls;
+	}
+
+	/**
+	 * Returns the wall clock time spent searching, in nanoseconds.
+	 */
+	public long getNanos()
+	{
+		return nanos;
+	}
+
+	/**
+	 * Returns the number of bytes allocated while searching, or -1 if the JVM cannot tell.
+	 */
+	public long getAllocatedBytes()
+	{
+		return allocatedBytes;
+	}
+
+	void expanded(int x, int y)
+	{
+		expanded++;
+
+		if (listener != null) {
+			listener.expanded(x, y);
+		}
+	}
+
+	/**
+	 * Counts nodes expanded in bulk, e.g. by a structure shared with other searches, without
+	 * telling the listener about each one.
+	 */
+	void expandedAll(int count)
+	{
+		expanded += count;
+	}
+
+	void generated(int x, int y)
+	{
+		generated++;
+
+		if (listener != null) {
+			listener.generated(x, y);
+		}
+	}
+
+	void duplicate()
+	{
+		duplicates++;
+	}
+
+	void open(int size)
+	{
+		if (size > peakOpen) {
+			peakOpen = size;
+		}
+	}
+
+	void heuristic()
+	{
+		heuristicCalls++;
+	}
+
+	/**
+	 * Starts or resumes the clocks.
+	 */
+	void start()
+	{
+		startBytes = Allocations.currentThreadAllocatedBytes();
+		startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Stops the clocks and adds the time and allocations since the last call to {@link #start()}.
+	 */
+	void stop()
+	{
+		nanos += System.nanoTime() - startNanos;
+
+		if (startBytes < 0 || allocatedBytes < 0) {
+			allocatedBytes = -1;
+		} else {
+			allocatedBytes += Allocations.currentThreadAllocatedBytes() - startBytes;
+		}
+	}
+
+	/**
+	 * Stops the clocks and attaches these metrics to a result.
+	 * 
+	 * @return The result.
+	 */
+	SearchResult finish(SearchResult result)
+	{
+		stop();
+		result.setMetrics(this);
+		return result;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%d expanded, %d generated, %d duplicates, %d peak open, %d heuristic calls, %.3fms, %d bytes", expanded, generated, duplicates, peakOpen, heuristicCalls, nanos / 1e6, allocatedBytes);
+	}
+}
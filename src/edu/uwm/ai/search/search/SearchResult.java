@@ -34,14 +34,30 @@ public class SearchResult
 {
 	private List<Point> path;
 	private int cost;
+	private double bound;
+	private SearchMetrics metrics;
 
 	public SearchResult(List<Point> path, int cost)
+	{
+		this(path, cost, Double.NaN);
+	}
+
+	/**
+	 * @param path
+	 *            The path found, starting with the initial point, or an empty list if there is none
+	 * @param cost
+	 *            The number of nodes expanded
+	 * @param bound
+	 *            The factor by which the path may at most exceed the cost of an optimal path, or
+	 *            NaN if the search does not know
+	 */
+	public SearchResult(List<Point> path, int cost, double bound)
 	{
 		this.path = path;
 		this.cost = cost;
+		this.bound = bound;
 	}
 
-
 	public List<Point> getPath()
 	{
 		return path;
@@ -51,4 +67,28 @@ public class SearchResult
 	{
 		return cost;
 	}
+
+	/**
+	 * Returns the factor by which the cost of the path may at most exceed the cost of an optimal
+	 * path, as proven by the search. This is 1 for a path known to be optimal, and NaN if the search
+	 * makes no claim either way.
+	 */
+	public double getSuboptimalityBound()
+	{
+		return bound;
+	}
+
+	/**
+	 * Returns what the search that found this result did, or null if the result was not made by an
+	 * instrumented search.
+	 */
+	public SearchMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	void setMetrics(SearchMetrics metrics)
+	{
+		this.metrics = metrics;
+	}
 }
@@ -0,0 +1,299 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import edu.uwm.ai.search.World;
+import edu.uwm.ai.search.util.IndexedHeap;
+import edu.uwm.ai.search.util.Point;
+
+/**
+ * Per-cell scratch space for searches over a single world. The arrays are sized once, and
+ * {@link #reset()} empties them in constant time by bumping a generation counter: a cell only
+ * counts as seen or closed if its stamp matches the current generation. Repeated searches through
+ * the same workspace therefore allocate nothing beyond the path they return.
+ * 
+ * A workspace must only be used by one search at a time. {@link #get(World)} hands out one
+ * workspace per thread and world.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class SearchWorkspace
+{
+	private static final ThreadLocal<Map<World, SearchWorkspace>> workspaces = new ThreadLocal<Map<World, SearchWorkspace>>() {
+		@Override
+		protected Map<World, SearchWorkspace> initialValue()
+		{
+			return new WeakHashMap<World, SearchWorkspace>();
+		}
+	};
+
+	private final int width;
+	private final int[] seen;
+	private final int[] closed;
+	private final float[] g;
+	private final float[] h;
+	private final int[] parent;
+	private final byte[] directions;
+	private final IndexedHeap open;
+	private final Point probe = new Point(0, 0);
+	private int generation;
+	private int closedGeneration;
+	private int stamp;
+
+	private int[] queue;
+	private SearchWorkspace partner;
+
+	public SearchWorkspace(World w)
+	{
+		this(w.getWidth(), w.getCellCount());
+	}
+
+	/**
+	 * A workspace keeps only the size of its world, never the world itself: the per-thread cache
+	 * holds workspaces in a weak map keyed by world, and a value that referred to its key would keep
+	 * every world the thread ever searched alive.
+	 */
+	private SearchWorkspace(int width, int n)
+	{
+		this.width = width;
+		this.seen = new int[n];
+		this.closed = new int[n];
+		this.g = new float[n];
+		this.h = new float[n];
+		this.parent = new int[n];
+		this.directions = new byte[n];
+		this.open = new IndexedHeap(n);
+	}
+
+	/**
+	 * Returns the calling thread's workspace for the given world, creating it on first use.
+	 */
+	public static SearchWorkspace get(World w)
+	{
+		Map<World, SearchWorkspace> m = workspaces.get();
+		SearchWorkspace ws = m.get(w);
+
+		if (ws == null) {
+			ws = new SearchWorkspace(w);
+			m.put(w, ws);
+		}
+
+		return ws;
+	}
+
+	/**
+	 * Returns a second workspace over the same world, created on first use, for searches that grow
+	 * two trees at once. It belongs to the same thread as this workspace.
+	 */
+	public SearchWorkspace getPartner()
+	{
+		if (partner == null) {
+			partner = new SearchWorkspace(width, seen.length);
+		}
+
+		return partner;
+	}
+
+	/**
+	 * Returns an array with room for every cell in the world, created on first use, for searches
+	 * that keep their frontier in a plain queue rather than the open list. Its contents are not
+	 * cleared by {@link #reset()}.
+	 */
+	public int[] getQueue()
+	{
+		if (queue == null) {
+			queue = new int[seen.length];
+		}
+
+		return queue;
+	}
+
+	/**
+	 * Forgets every cell seen or closed by the previous search and empties the open list.
+	 */
+	public void reset()
+	{
+		generation = nextStamp();
+		closedGeneration = generation;
+		open.clear();
+	}
+
+	/**
+	 * Forgets which cells are closed, but not the cells seen, their costs or the open list. Used by
+	 * searches that run several passes over the same tree.
+	 */
+	public void reopenAll()
+	{
+		closedGeneration = nextStamp();
+	}
+
+	private int nextStamp()
+	{
+		if (++stamp == Integer.MAX_VALUE) {
+			// Stamps from two billion searches ago would otherwise start to look current.
+			for (int i = 0; i < seen.length; i++) {
+				seen[i] = seen[i] == generation ? 1 : 0;
+			}
+
+			Arrays.fill(closed, 0);
+			generation = 1;
+			stamp = 2;
+		}
+
+		return stamp;
+	}
+
+	public boolean isSeen(int id)
+	{
+		return seen[id] == generation;
+	}
+
+	/**
+	 * Marks a cell as seen by the current search, with the given path cost, heuristic and parent.
+	 */
+	public void see(int id, float g, float h, int parent)
+	{
+		this.seen[id] = generation;
+		this.g[id] = g;
+		this.h[id] = h;
+		this.parent[id] = parent;
+	}
+
+	public boolean isClosed(int id)
+	{
+		return closed[id] == closedGeneration;
+	}
+
+	public void close(int id)
+	{
+		closed[id] = closedGeneration;
+	}
+
+	/**
+	 * Marks a closed cell as open again, e.g. so that a search can expand it once more.
+	 */
+	public void reopen(int id)
+	{
+		closed[id] = 0;
+	}
+
+	public float getG(int id)
+	{
+		return g[id];
+	}
+
+	public float getH(int id)
+	{
+		return h[id];
+	}
+
+	public int getParent(int id)
+	{
+		return parent[id];
+	}
+
+	/**
+	 * Updates the path cost and parent of a cell that has already been seen.
+	 */
+	public void relax(int id, float g, int parent)
+	{
+		this.g[id] = g;
+		this.parent[id] = parent;
+	}
+
+	/**
+	 * Returns the set of directions a cell has been reached from at its current cost, as a mask with
+	 * bit k set for move k. Only meaningful for cells whose mask was set by the current search.
+	 */
+	public int getDirections(int id)
+	{
+		return directions[id] & 0xff;
+	}
+
+	public void setDirections(int id, int mask)
+	{
+		directions[id] = (byte) mask;
+	}
+
+	public IndexedHeap getOpen()
+	{
+		return open;
+	}
+
+	/**
+	 * Returns a point owned by this workspace, for passing cell positions to a heuristic without
+	 * allocating.
+	 */
+	public Point getProbe(int id)
+	{
+		probe.setX(id % width);
+		probe.setY(id / width);
+
+		return probe;
+	}
+
+	/**
+	 * Builds the path from the root of the current search to the given cell by following parents.
+	 * 
+	 * @param id
+	 *            The last cell of the path
+	 * @return A new list of points, starting with the root of the search.
+	 */
+	public List<Point> backtrace(int id)
+	{
+		List<Point> path = trace(id);
+		Collections.reverse(path);
+		return path;
+	}
+
+	/**
+	 * Builds the path from the given cell back to the root of the current search by following
+	 * parents. When the search was rooted at a goal, this is the path from the cell to the goal.
+	 * 
+	 * @param id
+	 *            The first cell of the path
+	 * @return A new list of points, ending with the root of the search.
+	 */
+	public List<Point> trace(int id)
+	{
+		int length = 0;
+		for (int p = id; p != -1; p = parent[p]) {
+			length++;
+		}
+
+		List<Point> path = new ArrayList<Point>(length);
+		for (int p = id; p != -1; p = parent[p]) {
+			path.add(new Point(p % width, p / width));
+		}
+
+		return path;
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.util;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Reads the number of bytes the calling thread has allocated so far, where the JVM can tell. This
+ * uses the HotSpot extension of the thread management bean, which is cheap enough to call around
+ * a single search.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class Allocations
+{
+	private static final com.sun.management.ThreadMXBean bean = findBean();
+
+	private Allocations()
+	{
+	}
+
+	private static com.sun.management.ThreadMXBean findBean()
+	{
+		try {
+			java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+			if (bean instanceof com.sun.management.ThreadMXBean) {
+				com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) bean;
+
+				if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+					return hotspot;
+				}
+			}
+		} catch (LinkageError e) {
+			// Not a HotSpot JVM.
+		}
+
+		return null;
+	}
+
+	/**
+	 * Determines whether {@link #currentThreadAllocatedBytes()} works on this JVM.
+	 */
+	public static boolean isSupported()
+	{
+		return bean != null;
+	}
+
+	/**
+	 * Returns the total number of bytes allocated by the calling thread since it started, or -1 if
+	 * this JVM cannot tell. Only differences between two readings are meaningful.
+	 */
+	public static long currentThreadAllocatedBytes()
+	{
+		return bean == null ? -1 : bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
@@ -0,0 +1,271 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.util;
+
+/**
+ * A grid of blocked and free cells packed one bit per cell into <code>long</code> words. Each row
+ * is surrounded by blocked padding, so every cell from -1 up to and including the width (or
+ * height) can be read without bounds checks, and scans along a row or column always stop at the
+ * edge of the grid. Words of 64 cells can be read starting up to 64 cells beyond either end of a
+ * line. A transposed copy is kept so that columns can be scanned a word at a time just
+ * like rows.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class BitGrid
+{
+	/**
+	 * Cell x of a line is stored at bit x + PAD, leaving two words of blocked cells to its left.
+	 */
+	private static final int PAD = 128;
+
+	private final int w;
+	private final int h;
+
+	private final int rowStride;
+	private final int colStride;
+	private final long[] rows;
+	private final long[] cols;
+
+	public BitGrid(int w, int h)
+	{
+		this.w = w;
+		this.h = h;
+
+		this.rowStride = ((w + PAD + 64) >>> 6) + 2;
+		this.colStride = ((h + PAD + 64) >>> 6) + 2;
+		this.rows = new long[(h + 2) * rowStride];
+		this.cols = new long[(w + 2) * colStride];
+
+		pad(rows, rowStride, w, h);
+		pad(cols, colStride, h, w);
+	}
+
+	/**
+	 * Blocks everything outside of a line-major bit plane: the first and last lines entirely, and in
+	 * every other line the padding to the left and every bit from the end of the line on.
+	 */
+	private static void pad(long[] bits, int stride, int length, int lines)
+	{
+		for (int line = 0; line < lines + 2; line++) {
+			int base = line * stride;
+
+			if (line == 0 || line == lines + 1) {
+				for (int k = 0; k < stride; k++) {
+					bits[base + k] = -1L;
+				}
+
+				continue;
+			}
+
+			bits[base] = -1L;
+			bits[base + 1] = -1L;
+
+			for (int bit = length + PAD; bit < stride * 64; bit++) {
+				bits[base + (bit >>> 6)] |= 1L << (bit & 63);
+			}
+		}
+	}
+
+	public int getWidth()
+	{
+		return w;
+	}
+
+	public int getHeight()
+	{
+		return h;
+	}
+
+	/**
+	 * Returns a 64-bit hash of the size of the grid and of every cell, so that tables computed for a
+	 * grid and saved to a file can tell whether they are loaded for the same grid.
+	 */
+	public long fingerprint()
+	{
+		long hash = 0xcbf29ce484222325L ^ ((long) w << 32 | h);
+
+		for (long word : rows) {
+			hash = (hash ^ word) * 0x100000001b3L;
+			hash ^= hash >>> 29;
+		}
+
+		return hash;
+	}
+
+	/**
+	 * Returns true if the given cell is blocked. Any cell from (-1, -1) to (width, height)
+	 * inclusive may be read; the cells outside of the grid are always blocked.
+	 */
+	public boolean isBlocked(int x, int y)
+	{
+		int bit = x + PAD;
+		return (rows[(y + 1) * rowStride + (bit >>> 6)] & (1L << (bit & 63))) != 0;
+	}
+
+	/**
+	 * Blocks or frees a cell, which must lie inside of the grid.
+	 */
+	public void setBlocked(int x, int y, boolean blocked)
+	{
+		set(rows, rowStride, y + 1, x + PAD, blocked);
+		set(cols, colStride, x + 1, y + PAD, blocked);
+	}
+
+	private static void set(long[] bits, int stride, int line, int bit, boolean blocked)
+	{
+		int k = line * stride + (bit >>> 6);
+
+		if (blocked) {
+			bits[k] |= 1L << (bit & 63);
+		} else {
+			bits[k] &= ~(1L << (bit & 63));
+		}
+	}
+
+	/**
+	 * Returns 64 cells of a row as a word, starting at the given column: bit k is set if cell (x +
+	 * k, y) is blocked. The column may be anywhere from -64 to the width plus 64, and the row from -1
+	 * to the height.
+	 */
+	public long getRowWord(int x, int y)
+	{
+		return window(rows, rowStride, y + 1, x + PAD);
+	}
+
+	/**
+	 * Returns 64 cells of a row as a word, running leftwards from the given column: bit k is set if
+	 * cell (x - k, y) is blocked. The column may be anywhere from -64 to the width plus 64, and the
+	 * row from -1 to the height.
+	 */
+	public long getReversedRowWord(int x, int y)
+	{
+		return Long.reverse(window(rows, rowStride, y + 1, x - 63 + PAD));
+	}
+
+	/**
+	 * Returns 64 cells of a column as a word, starting at the given row: bit k is set if cell (x, y
+	 * + k) is blocked. The row may be anywhere from -64 to the height plus 64, and the column from -1
+	 * to the width.
+	 */
+	public long getColumnWord(int x, int y)
+	{
+		return window(cols, colStride, x + 1, y + PAD);
+	}
+
+	/**
+	 * Returns 64 cells of a column as a word, running upwards from the given row: bit k is set if
+	 * cell (x, y - k) is blocked. The row may be anywhere from -64 to the height plus 64, and the
+	 * column from -1 to the width.
+	 */
+	public long getReversedColumnWord(int x, int y)
+	{
+		return Long.reverse(window(cols, colStride, x + 1, y - 63 + PAD));
+	}
+
+	private static long window(long[] bits, int stride, int line, int bit)
+	{
+		int k = line * stride + (bit >>> 6);
+		int shift = bit & 63;
+
+		if (shift == 0) {
+			return bits[k];
+		}
+
+		return (bits[k] >>> shift) | (bits[k + 1] << (64 - shift));
+	}
+
+	/**
+	 * Returns the column of the first blocked cell at or to the right of (x, y). The result is at
+	 * most the width of the grid.
+	 */
+	public int nextBlockedInRow(int x, int y)
+	{
+		for (;; x += 64) {
+			long word = getRowWord(x, y);
+
+			if (word != 0) {
+				return x + Long.numberOfTrailingZeros(word);
+			}
+		}
+	}
+
+	/**
+	 * Returns the column of the first blocked cell at or to the left of (x, y). The result is at
+	 * least -1.
+	 */
+	public int previousBlockedInRow(int x, int y)
+	{
+		for (;; x -= 64) {
+			long word = getReversedRowWord(x, y);
+
+			if (word != 0) {
+				return x - Long.numberOfTrailingZeros(word);
+			}
+		}
+	}
+
+	/**
+	 * Returns the row of the first blocked cell at or below (x, y). The result is at most the height
+	 * of the grid.
+	 */
+	public int nextBlockedInColumn(int x, int y)
+	{
+		for (;; y += 64) {
+			long word = getColumnWord(x, y);
+
+			if (word != 0) {
+				return y + Long.numberOfTrailingZeros(word);
+			}
+		}
+	}
+
+	/**
+	 * Returns the row of the first blocked cell at or above (x, y). The result is at least -1.
+	 */
+	public int previousBlockedInColumn(int x, int y)
+	{
+		for (;; y -= 64) {
+			long word = getReversedColumnWord(x, y);
+
+			if (word != 0) {
+				return y - Long.numberOfTrailingZeros(word);
+			}
+		}
+	}
+
+	/**
+	 * Returns which of the eight neighbours of a cell inside of the grid are blocked. The bits, from
+	 * lowest to highest, are the neighbours at offsets (0, -1), (0, 1), (-1, 0), (1, 0), (1, 1), (1,
+	 * -1), (-1, 1) and (-1, -1), the same order in which the search algorithms list their moves.
+	 */
+	public int getNeighbourMask(int x, int y)
+	{
+		long above = getRowWord(x - 1, y - 1);
+		long level = getRowWord(x - 1, y);
+		long below = getRowWord(x - 1, y + 1);
+
+		return (int) (((above >>> 1) & 1) | ((below >>> 1) & 1) << 1 | (level & 1) << 2 | ((level >>> 2) & 1) << 3 | ((below >>> 2) & 1) << 4 | ((above >>> 2) & 1) << 5 | (below & 1) << 6 | (above & 1) << 7);
+	}
+}
@@ -0,0 +1,226 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.util;
+
+/**
+ * Labels the connected regions of free cells of a grid, so that whether one cell can be reached
+ * from another is answered by comparing two labels instead of by a search that fails only after
+ * exhausting the region of the start.
+ * 
+ * A diagonal move is only possible if one of the two cells beside it is free, and that cell is
+ * next to both ends of the move, so two cells are connected by the eight moves exactly when they
+ * are connected by the four straight moves alone. The regions are found in a single pass over the
+ * grid that joins every free cell with its free neighbours to the left and above in a union-find
+ * forest, in which a root is always the first cell of its region, and a second pass that numbers
+ * the roots.
+ * 
+ * The labels describe the grid at the time they were computed, or when they were last brought up
+ * to date with {@link #block(BitGrid, int, int, int)}.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class ComponentIndex
+{
+	// The ring of cells around a cell, in order, starting above it; even entries are straight.
+	private static final int[] RING_X = { 0, 1, 1, 1, 0, -1, -1, -1 };
+	private static final int[] RING_Y = { -1, -1, 0, 1, 1, 1, 0, -1 };
+	private static final int STRAIGHT = 0x55;
+
+	private final int w;
+	private final int[] labels;
+	private final int count;
+	private volatile int version;
+
+	/**
+	 * Labels the regions of a grid.
+	 * 
+	 * @param grid
+	 *            The grid to label
+	 * @param version
+	 *            The version of the world the grid belongs to, kept so that the owner can tell
+	 *            when the labels are stale
+	 */
+	public ComponentIndex(BitGrid grid, int version)
+	{
+		this.w = grid.getWidth();
+		this.version = version;
+
+		int h = grid.getHeight();
+		int[] parent = new int[w * h];
+
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) {
+				int c = y * w + x;
+
+				if (grid.isBlocked(x, y)) {
+					parent[c] = -1;
+					continue;
+				}
+
+				parent[c] = c;
+
+				if (!grid.isBlocked(x - 1, y)) {
+					union(parent, c, c - 1);
+				}
+
+				if (!grid.isBlocked(x, y - 1)) {
+					union(parent, c, c - w);
+				}
+			}
+		}
+
+		// Every link points to a smaller index, so by the time a cell is reached its parent already
+		// points straight at the root, which has already been given its label.
+		int[] labels = new int[parent.length];
+		int next = 0;
+
+		for (int c = 0; c < parent.length; c++) {
+			if (parent[c] == -1) {
+				labels[c] = -1;
+				continue;
+			}
+
+			int root = parent[parent[c]];
+			parent[c] = root;
+			labels[c] = root == c ? next++ : labels[root];
+		}
+
+		this.labels = labels;
+		this.count = next;
+	}
+
+	private static int find(int[] parent, int c)
+	{
+		while (parent[c] != c) {
+			parent[c] = parent[parent[c]];
+			c = parent[c];
+		}
+
+		return c;
+	}
+
+	private static void union(int[] parent, int a, int b)
+	{
+		int ra = find(parent, a);
+		int rb = find(parent, b);
+
+		if (ra < rb) {
+			parent[rb] = ra;
+		} else if (rb < ra) {
+			parent[ra] = rb;
+		}
+	}
+
+	/**
+	 * Brings the labels up to date with a cell that has just been blocked, if that cannot have
+	 * split its region. That is the case when the free cells next to it in the four straight
+	 * directions are joined through the free cells of the ring of eight around it, since consecutive
+	 * cells of the ring are themselves straight neighbours. Otherwise the region may have come apart
+	 * elsewhere, which only a full labelling can tell, and the labels are left as they are.
+	 * 
+	 * @param grid
+	 *            The grid, with the cell already blocked
+	 * @param version
+	 *            The version of the world with the cell blocked
+	 * @return True if the labels were updated and now carry the given version.
+	 */
+	public boolean block(BitGrid grid, int x, int y, int version)
+	{
+		int free = 0;
+		for (int k = 0; k < RING_X.length; k++) {
+			if (!grid.isBlocked(x + RING_X[k], y + RING_Y[k])) {
+				free |= 1 << k;
+			}
+		}
+
+		// A cell with no free straight neighbour was a region of its own, and removing it would
+		// leave a gap in the numbering.
+		if ((free & STRAIGHT) == 0) {
+			return false;
+		}
+
+		// Count the runs of free ring cells that hold a straight neighbour, starting the walk just
+		// past a blocked ring cell so that no run is split in two. A ring with no blocked cell is
+		// a single run.
+		if (free != 0xff) {
+			int first = Integer.numberOfTrailingZeros(~free);
+			int runs = 0;
+			boolean counted = false;
+
+			for (int i = 1; i <= RING_X.length; i++) {
+				int k = (first + i) & 7;
+
+				if ((free & (1 << k)) == 0) {
+					counted = false;
+				} else if ((STRAIGHT & (1 << k)) != 0 && !counted) {
+					counted = true;
+					runs++;
+				}
+			}
+
+			if (runs > 1) {
+				return false;
+			}
+		}
+
+		labels[y * w + x] = -1;
+		this.version = version;
+		return true;
+	}
+
+	/**
+	 * Returns the label of the region of a cell, numbered from zero, or -1 if the cell is blocked.
+	 */
+	public int getComponent(int x, int y)
+	{
+		return labels[y * w + x];
+	}
+
+	/**
+	 * Determines whether two free cells are in the same region.
+	 * 
+	 * @return True if both cells are free and a path leads from one to the other.
+	 */
+	public boolean isConnected(int ax, int ay, int bx, int by)
+	{
+		int a = labels[ay * w + ax];
+		return a != -1 && a == labels[by * w + bx];
+	}
+
+	/**
+	 * Returns the number of regions.
+	 */
+	public int getComponentCount()
+	{
+		return count;
+	}
+
+	/**
+	 * Returns the version given when the labels were computed.
+	 */
+	public int getVersion()
+	{
+		return version;
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.util;
+
+import java.util.Arrays;
+
+/**
+ * The number of moves from every cell of a grid to a single goal cell, together with the direction
+ * of the first move along a shortest route. Once built, any number of entities can follow the field
+ * to the goal at constant cost per step, without searching.
+ * 
+ * The field is built by a breadth-first flood from the goal over an array queue, so every move,
+ * straight or diagonal, counts as one step and a rebuild is linear in the number of free cells.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class FlowField
+{
+	/**
+	 * The offsets of the eight moves, in the same order as the search algorithms list them.
+	 */
+	private static final int[] DX = { 0, 0, -1, 1, 1, 1, -1, -1 };
+	private static final int[] DY = { -1, 1, 0, 0, 1, -1, 1, -1 };
+
+	/**
+	 * The index of the opposite of each move.
+	 */
+	private static final int[] REVERSE = { 1, 0, 3, 2, 7, 6, 5, 4 };
+
+	private final BitGrid grid;
+	private final int w;
+	private final int h;
+	private final int[] distance;
+	private final byte[] direction;
+	private final int[] queue;
+	private int goal = -1;
+
+	public FlowField(BitGrid grid)
+	{
+		this.grid = grid;
+		this.w = grid.getWidth();
+		this.h = grid.getHeight();
+		this.distance = new int[w * h];
+		this.direction = new byte[w * h];
+		this.queue = new int[w * h];
+
+		Arrays.fill(distance, -1);
+	}
+
+	/**
+	 * Rebuilds the field towards a new goal.
+	 * 
+	 * @return The number of cells expanded.
+	 */
+	public int update(int goalX, int goalY)
+	{
+		Arrays.fill(distance, -1);
+
+		goal = goalY * w + goalX;
+
+		if (grid.isBlocked(goalX, goalY)) {
+			return 0;
+		}
+
+		int head = 0;
+		int tail = 0;
+
+		queue[tail++] = goal;
+		distance[goal] = 0;
+		direction[goal] = -1;
+
+		while (head < tail) {
+			int current = queue[head++];
+			int x = current % w;
+			int y = current / w;
+
+			for (int k = 0; k < 8; k++) {
+				int nx = x + DX[k];
+				int ny = y + DY[k];
+
+				if (grid.isBlocked(nx, ny) || (k >= 4 && grid.isBlocked(nx, y) && grid.isBlocked(x, ny))) {
+					continue;
+				}
+
+				int next = ny * w + nx;
+
+				if (distance[next] == -1) {
+					distance[next] = distance[current] + 1;
+					direction[next] = (byte) REVERSE[k];
+					queue[tail++] = next;
+				}
+			}
+		}
+
+		return head;
+	}
+
+	/**
+	 * Forgets the goal, so that the field counts as out of date until it is next rebuilt.
+	 */
+	public void invalidate()
+	{
+		goal = -1;
+	}
+
+	/**
+	 * Returns the id of the cell the field leads to, or -1 if it has never been built or is out of
+	 * date. Ids are numbered row by row, as in {@link edu.uwm.ai.search.World#getCellId(int, int)}.
+	 */
+	public int getGoal()
+	{
+		return goal;
+	}
+
+	/**
+	 * Returns the number of moves from a cell to the goal, or -1 if the goal cannot be reached.
+	 */
+	public int getDistance(int x, int y)
+	{
+		return distance[y * w + x];
+	}
+
+	/**
+	 * Returns the first move from a cell towards the goal, as an index into the eight moves (see
+	 * {@link BitGrid#getNeighbourMask(int, int)} for their order), or -1 at the goal itself.
+	 */
+	public int getDirection(int x, int y)
+	{
+		return direction[y * w + x];
+	}
+
+	public static int getDirectionX(int k)
+	{
+		return DX[k];
+	}
+
+	public static int getDirectionY(int k)
+	{
+		return DY[k];
+	}
+}
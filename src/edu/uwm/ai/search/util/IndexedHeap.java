@@ -0,0 +1,252 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.util;
+
+/**
+ * A binary min-heap of integer ids, each with a float key, that knows where every id sits in the
+ * heap. This lets a search lower the key of an id that is already open in O(log n) rather than
+ * adding a second copy of it. Each id may also carry a second key, which breaks ties between equal
+ * keys.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class IndexedHeap
+{
+	private final int[] heap;
+	private final int[] index;
+	private final float[] keys;
+	private final float[] ties;
+	private int size;
+
+	/**
+	 * @param capacity
+	 *            One more than the largest id that will ever be added
+	 */
+	public IndexedHeap(int capacity)
+	{
+		this.heap = new int[capacity];
+		this.index = new int[capacity];
+		this.keys = new float[capacity];
+		this.ties = new float[capacity];
+
+		for (int i = 0; i < capacity; i++) {
+			index[i] = -1;
+		}
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public boolean contains(int id)
+	{
+		return index[id] >= 0;
+	}
+
+	/**
+	 * Returns the id at a position of the heap, for visiting every id in no particular order.
+	 * 
+	 * @param position
+	 *            A position between zero and {@link #size()}
+	 */
+	public int get(int position)
+	{
+		return heap[position];
+	}
+
+	public float getKey(int id)
+	{
+		return keys[id];
+	}
+
+	public float getTie(int id)
+	{
+		return ties[id];
+	}
+
+	/**
+	 * Adds an id to the heap, or changes its key if it is already there.
+	 * 
+	 * @param id
+	 *            The id to add
+	 * @param key
+	 *            The priority of the id; smaller keys are polled first
+	 */
+	public void add(int id, float key)
+	{
+		add(id, key, 0);
+	}
+
+	/**
+	 * Adds an id to the heap, or changes its keys if it is already there.
+	 * 
+	 * @param id
+	 *            The id to add
+	 * @param key
+	 *            The priority of the id; smaller keys are polled first
+	 * @param tie
+	 *            The priority of the id among ids with the same key
+	 */
+	public void add(int id, float key, float tie)
+	{
+		if (index[id] >= 0) {
+			keys[id] = key;
+			ties[id] = tie;
+
+			siftUp(index[id]);
+			siftDown(index[id]);
+			return;
+		}
+
+		keys[id] = key;
+		ties[id] = tie;
+		heap[size] = id;
+		index[id] = size;
+		siftUp(size++);
+	}
+
+	/**
+	 * Returns the id with the smallest key without removing it.
+	 */
+	public int peek()
+	{
+		return heap[0];
+	}
+
+	public float peekKey()
+	{
+		return keys[heap[0]];
+	}
+
+	/**
+	 * Removes and returns the id with the smallest key.
+	 */
+	public int poll()
+	{
+		int id = heap[0];
+		index[id] = -1;
+
+		if (--size > 0) {
+			heap[0] = heap[size];
+			index[heap[0]] = 0;
+			siftDown(0);
+		}
+
+		return id;
+	}
+
+	/**
+	 * Removes an id from the heap if it is there.
+	 */
+	public void remove(int id)
+	{
+		int i = index[id];
+
+		if (i < 0) {
+			return;
+		}
+
+		index[id] = -1;
+
+		if (i == --size) {
+			return;
+		}
+
+		int last = heap[size];
+		heap[i] = last;
+		index[last] = i;
+		siftUp(i);
+		siftDown(index[last]);
+	}
+
+	/**
+	 * Removes every id from the heap. This only touches the ids that are still in the heap.
+	 */
+	public void clear()
+	{
+		for (int i = 0; i < size; i++) {
+			index[heap[i]] = -1;
+		}
+
+		size = 0;
+	}
+
+	private void siftUp(int i)
+	{
+		int id = heap[i];
+
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			int p = heap[parent];
+
+			if (!less(id, p)) {
+				break;
+			}
+
+			heap[i] = p;
+			index[p] = i;
+			i = parent;
+		}
+
+		heap[i] = id;
+		index[id] = i;
+	}
+
+	private void siftDown(int i)
+	{
+		int id = heap[i];
+		int half = size >>> 1;
+
+		while (i < half) {
+			int child = 2 * i + 1;
+			int c = heap[child];
+
+			if (child + 1 < size && less(heap[child + 1], c)) {
+				c = heap[++child];
+			}
+
+			if (!less(c, id)) {
+				break;
+			}
+
+			heap[i] = c;
+			index[c] = i;
+			i = child;
+		}
+
+		heap[i] = id;
+		index[id] = i;
+	}
+
+	private boolean less(int a, int b)
+	{
+		return keys[a] < keys[b] || (keys[a] == keys[b] && ties[a] < ties[b]);
+	}
+}
@@ -0,0 +1,296 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies in buckets whose width grows with the value, in the manner of an HDR histogram:
+ * every power of two is split into {@value #SUB_BUCKETS} / 2 equal buckets, so a percentile is off
+ * by less than about 3% of its value from one nanosecond up to an hour, in a fixed 10KB of counters.
+ * Values above an hour are counted in the last bucket, but the maximum is exact.
+ * 
+ * Recording never locks and never allocates, so any number of planning threads can record into the
+ * same histogram while another thread takes snapshots of it. A snapshot taken while values are
+ * being recorded may miss the ones still in flight.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class LatencyHistogram
+{
+	/**
+	 * The number of buckets the values below this one are split into, one per value. Every power
+	 * of two above it is split into half as many buckets.
+	 */
+	public static final int SUB_BUCKETS = 64;
+
+	/**
+	 * The largest value in nanoseconds that is counted in a bucket of its own.
+	 */
+	public static final long HIGHEST_TRACKABLE_VALUE = 3600L * 1000 * 1000 * 1000;
+
+	private static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+	private static final int BUCKETS = index(HIGHEST_TRACKABLE_VALUE) + 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+	private final AtomicLong intervalMax = new AtomicLong();
+
+	private final long created = System.currentTimeMillis();
+
+	private final Object intervalLock = new Object();
+	private long[] intervalCounts = new long[BUCKETS];
+	private long intervalTotal;
+	private long intervalStart = created;
+
+	/**
+	 * Counts one latency.
+	 * 
+	 * @param nanos
+	 *            The latency in nanoseconds; negative values are counted as zero
+	 */
+	public void record(long nanos)
+	{
+		if (nanos < 0) {
+			nanos = 0;
+		}
+
+		counts.incrementAndGet(index(Math.min(nanos, HIGHEST_TRACKABLE_VALUE)));
+		total.addAndGet(nanos);
+		raise(max, nanos);
+		raise(intervalMax, nanos);
+	}
+
+	private static void raise(AtomicLong max, long value)
+	{
+		long current = max.get();
+		while (value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+
+	/**
+	 * Returns the number of latencies recorded so far.
+	 */
+	public long getCount()
+	{
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			count += counts.get(i);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns everything recorded since the histogram was created.
+	 */
+	public Snapshot snapshot()
+	{
+		long[] copy = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			copy[i] = counts.get(i);
+		}
+
+		return new Snapshot(copy, total.get(), max.get(), created, System.currentTimeMillis());
+	}
+
+	/**
+	 * Returns what was recorded since the previous call to this method, or since the histogram was
+	 * created if this is the first call. Successive intervals cover every recorded value exactly
+	 * once, so they can be logged and compared with each other or with another run.
+	 */
+	public Snapshot intervalSnapshot()
+	{
+		synchronized (intervalLock) {
+			long end = System.currentTimeMillis();
+			long sum = total.get();
+			long peak = intervalMax.getAndSet(0);
+
+			long[] delta = new long[BUCKETS];
+			for (int i = 0; i < BUCKETS; i++) {
+				long count = counts.get(i);
+				delta[i] = count - intervalCounts[i];
+				intervalCounts[i] = count;
+			}
+
+			Snapshot snapshot = new Snapshot(delta, sum - intervalTotal, peak, intervalStart, end);
+			intervalTotal = sum;
+			intervalStart = end;
+			return snapshot;
+		}
+	}
+
+	/**
+	 * Returns the bucket counting the given value. The first {@value #SUB_BUCKETS} buckets count
+	 * one value each; after that, each power of two has half of that many buckets, the other half
+	 * being covered by the power of two below it.
+	 */
+	private static int index(long value)
+	{
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+		return SUB_BUCKETS + (shift - 1) * (SUB_BUCKETS / 2) + (int) (value >>> shift) - SUB_BUCKETS / 2;
+	}
+
+	/**
+	 * Returns the largest value counted by the given bucket.
+	 */
+	private static long highestValue(int index)
+	{
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+
+		int shift = (index - SUB_BUCKETS) / (SUB_BUCKETS / 2) + 1;
+		long sub = (index - SUB_BUCKETS) % (SUB_BUCKETS / 2) + SUB_BUCKETS / 2;
+		return ((sub + 1) << shift) - 1;
+	}
+
+	/**
+	 * The counts of a histogram at one point in time, or over one interval.
+	 */
+	public static class Snapshot
+	{
+		private final long[] counts;
+		private final long count;
+		private final long total;
+		private final long max;
+		private final long start;
+		private final long end;
+
+		private Snapshot(long[] counts, long total, long max, long start, long end)
+		{
+			long count = 0;
+			for (long c : counts) {
+				count += c;
+			}
+
+			this.counts = counts;
+			this.count = count;
+			this.total = total;
+			this.max = count == 0 ? 0 : max;
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * Returns the number of latencies in the snapshot.
+		 */
+		public long getCount()
+		{
+			return count;
+		}
+
+		/**
+		 * Returns the mean latency in nanoseconds, or zero if there are none.
+		 */
+		public double getMean()
+		{
+			return count == 0 ? 0 : (double) total / count;
+		}
+
+		/**
+		 * Returns the largest latency in nanoseconds, or zero if there are none.
+		 */
+		public long getMax()
+		{
+			return max;
+		}
+
+		/**
+		 * Returns the latency in nanoseconds that the given percentage of latencies are at or
+		 * below, rounded up to the end of its bucket but never above the maximum.
+		 * 
+		 * @param percentile
+		 *            A percentage between 0 and 100, e.g. 99.9
+		 * @return The latency, or zero if there are none.
+		 */
+		public long getValueAtPercentile(double percentile)
+		{
+			if (count == 0) {
+				return 0;
+			}
+
+			long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+
+				if (seen >= rank) {
+					return Math.min(highestValue(i), max);
+				}
+			}
+
+			return max;
+		}
+
+		/**
+		 * Combines this snapshot with one of another histogram, e.g. to report a group of entities
+		 * that each keep their own histogram as one. The result covers the time spanned by both.
+		 * 
+		 * @param other
+		 *            The snapshot to add to this one
+		 * @return A new snapshot counting the latencies of both.
+		 */
+		public Snapshot add(Snapshot other)
+		{
+			long[] sum = new long[counts.length];
+			for (int i = 0; i < sum.length; i++) {
+				sum[i] = counts[i] + other.counts[i];
+			}
+
+			return new Snapshot(sum, total + other.total, Math.max(max, other.max), Math.min(start, other.start), Math.max(end, other.end));
+		}
+
+		/**
+		 * Returns the value of {@link System#currentTimeMillis()} at the start of the interval, or
+		 * when the histogram was created if the snapshot covers everything recorded.
+		 */
+		public long getStartTime()
+		{
+			return start;
+		}
+
+		/**
+		 * Returns the value of {@link System#currentTimeMillis()} when the snapshot was taken.
+		 */
+		public long getEndTime()
+		{
+			return end;
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format("%d searches, p50 %.2fms, p90 %.2fms, p99 %.2fms, p99.9 %.2fms, max %.2fms", count, getValueAtPercentile(50) / 1e6, getValueAtPercentile(90) / 1e6, getValueAtPercentile(99) / 1e6, getValueAtPercentile(99.9) / 1e6, max / 1e6);
+		}
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * This file is part of the search package.
+ *
+ * Copyright (C) 2012, Eric Fritz
+ * Copyright (C) 2012, Reed Johnson
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the "Software"), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions: 
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+ */
+
+package edu.uwm.ai.search.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import edu.uwm.ai.search.util.LatencyHistogram.Snapshot;
+
+/**
+ * Keeps one {@link LatencyHistogram} per algorithm name, and writes snapshots of all of them to CSV
+ * or JSON so that runs can be compared. Histograms are created the first time a name is used, and
+ * can be looked up and recorded into from any thread.
+ * 
+ * @author Eric Fritz
+ * @author Reed Johnson
+ */
+public class LatencyRegistry
+{
+	private static final LatencyRegistry defaultRegistry = new LatencyRegistry();
+
+	private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+
+	/**
+	 * Returns the registry shared by all search entities.
+	 */
+	public static LatencyRegistry getDefault()
+	{
+		return defaultRegistry;
+	}
+
+	/**
+	 * Returns the histogram of the given algorithm, creating it if it does not exist yet.
+	 * 
+	 * @param name
+	 *            The name of the algorithm
+	 */
+	public LatencyHistogram get(String name)
+	{
+		LatencyHistogram histogram = histograms.get(name);
+
+		if (histogram == null) {
+			LatencyHistogram created = new LatencyHistogram();
+			histogram = histograms.putIfAbsent(name, created);
+
+			if (histogram == null) {
+				histogram = created;
+			}
+		}
+
+		return histogram;
+	}
+
+	/**
+	 * Returns a snapshot of everything recorded by each algorithm, sorted by name.
+	 */
+	public Map<String, Snapshot> snapshot()
+	{
+		Map<String, Snapshot> snapshots = new TreeMap<String, Snapshot>();
+		for (Map.Entry<String, LatencyHistogram> e : histograms.entrySet()) {
+			snapshots.put(e.getKey(), e.getValue().snapshot());
+		}
+
+		return snapshots;
+	}
+
+	/**
+	 * Returns a snapshot of what each algorithm recorded since the previous call to this method,
+	 * sorted by name.
+	 * 
+	 * @see LatencyHistogram#intervalSnapshot()
+	 */
+	public Map<String, Snapshot> intervalSnapshot()
+	{
+		Map<String, Snapshot> snapshots = new TreeMap<String, Snapshot>();
+		for (Map.Entry<String, LatencyHistogram> e : histograms.entrySet()) {
+			snapshots.put(e.getKey(), e.getValue().intervalSnapshot());
+		}
+
+		return snapshots;
+	}
+
+	/**
+	 * Writes one row per algorithm to a CSV file, with latencies in microseconds. When appending,
+	 * the header is only written if the file is empty, so successive interval snapshots can be
+	 * logged to the same file.
+	 * 
+	 * @param snapshots
+	 *            The snapshots to write, by algorithm name
+	 * @param file
+	 *            The file to write
+	 * @param append
+	 *            Whether to add to the end of the file instead of replacing it
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 */
+	public static void writeCsv(Map<String, Snapshot> snapshots, File file, boolean append) throws IOException
+	{
+		boolean header = !append || file.length() == 0;
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file, append), "UTF-8"));
+
+		try {
+			if (header) {
+				out.println("algorithm,start_ms,end_ms,count,mean_us,p50_us,p90_us,p99_us,p999_us,max_us");
+			}
+
+			for (Map.Entry<String, Snapshot> e : snapshots.entrySet()) {
+				Snapshot s = e.getValue();
+
+				out.printf(Locale.ROOT, "%s,%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f%n", e.getKey(), s.getStartTime(), s.getEndTime(), s.getCount(), s.getMean() / 1e3, s.getValueAtPercentile(50) / 1e3, s.getValueAtPercentile(90) / 1e3, s.getValueAtPercentile(99) / 1e3, s.getValueAtPercentile(99.9) / 1e3, s.getMax() / 1e3);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the snapshots to a JSON file as an array with one object per algorithm, with the same
+	 * fields as {@link #writeCsv(Map, File, boolean)}.
+	 * 
+	 * @param snapshots
+	 *            The snapshots to write, by algorithm name
+	 * @param file
+	 *            The file to replace
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 */
+	public static void writeJson(Map<String, Snapshot> snapshots, File file) throws IOException
+	{
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+
+		try {
+			out.println("[");
+
+			int i = 0;
+			for (Map.Entry<String, Snapshot> e : snapshots.entrySet()) {
+				Snapshot s = e.getValue();
+
+				out.printf(Locale.ROOT, "  {\"algorithm\": \"%s\", \"start_ms\": %d, \"end_ms\": %d, \"count\": %d, \"mean_us\": %.3f, \"p50_us\": %.3f, \"p90_us\": %.3f, \"p99_us\": %.3f, \"p999_us\": %.3f, \"max_us\": %.3f}%s%n", e.getKey().replace("\\", "\\\\").replace("\"", "\\\""), s.getStartTime(), s.getEndTime(), s.getCount(), s.getMean() / 1e3, s.getValueAtPercentile(50) / 1e3, s.getValueAtPercentile(90) / 1e3, s.getValueAtPercentile(99) / 1e3, s.getValueAtPercentile(99.9) / 1e3, s.getMax() / 1e3, ++i < snapshots.size() ? "," : "");
+			}
+
+			out.println("]");
+		} finally {
+			out.close();
+		}
+	}
+}